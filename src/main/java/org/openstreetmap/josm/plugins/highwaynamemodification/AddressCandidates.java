@@ -0,0 +1,266 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+
+import jakarta.annotation.Nonnull;
+
+/**
+ * A stream of the addresses that should follow a rename, produced in the background.
+ * <p>
+ * Addresses are checked in batches, starting with those closest to the renamed highways, so the first candidates
+ * are available long before all addresses have been checked. Within a batch, candidates are ordered by their
+ * distance to the renamed highways. Each batch is checked with the read lock of the dataset held.
+ *
+ * @author Taylor Smock
+ */
+final class AddressCandidates {
+    /** The number of addresses to check at a time. Small enough that the first batch is quick. */
+    private static final int BATCH_SIZE = 64;
+
+    private final Deque<Candidate> ready = new ArrayDeque<>();
+    private CompletableFuture<Candidate> waiting;
+    private boolean finished;
+    private Throwable failure;
+    private int found;
+    private volatile boolean cancelled;
+
+    /**
+     * Start producing candidates
+     *
+     * @param highways  The highways which changed names
+     * @param addresses The primitives with the old {@code addr:street}
+     * @param roads     The roads with the old or the new name
+     * @param executor  The executor to check the addresses in
+     */
+    AddressCandidates(@Nonnull Collection<OsmPrimitive> highways, @Nonnull Collection<OsmPrimitive> addresses,
+            @Nonnull Collection<OsmPrimitive> roads, @Nonnull Executor executor) {
+        this(highways, Collections.emptyMap(), addresses, roads, executor);
+    }
+
+    /**
+     * Start producing candidates
+     *
+     * @param highways  The highways which changed names
+     * @param assigned  Addresses that are known to belong to one of the highways (e.g. from an
+     *                  {@code associatedStreet} relation), mapped to that highway. These are the first candidates,
+     *                  and are not checked against the other roads.
+     * @param addresses The primitives with the old {@code addr:street}
+     * @param roads     The roads with the old or the new name
+     * @param executor  The executor to check the addresses in
+     */
+    AddressCandidates(@Nonnull Collection<OsmPrimitive> highways, @Nonnull Map<OsmPrimitive, OsmPrimitive> assigned,
+            @Nonnull Collection<OsmPrimitive> addresses, @Nonnull Collection<OsmPrimitive> roads,
+            @Nonnull Executor executor) {
+        final List<Candidate> known = new ArrayList<>(assigned.size());
+        assigned.forEach((address, highway) -> known.add(new Candidate(address, new NearestRoadIndex.Match(highway,
+                null, 0))));
+        offer(known);
+        final List<OsmPrimitive> highwayCopy = new ArrayList<>(highways);
+        final List<OsmPrimitive> addressCopy = new ArrayList<>(addresses);
+        addressCopy.removeIf(assigned::containsKey);
+        final List<OsmPrimitive> roadCopy = new ArrayList<>(roads);
+        CompletableFuture.runAsync(() -> produce(highwayCopy, addressCopy, roadCopy), executor)
+                .whenComplete((result, throwable) -> finish(throwable));
+    }
+
+    private void produce(List<OsmPrimitive> highways, List<OsmPrimitive> addresses, List<OsmPrimitive> roads) {
+        final DataSet dataSet = highways.isEmpty() ? null : highways.get(0).getDataSet();
+        final Set<OsmPrimitive> highwaySet = new HashSet<>(highways);
+        final NearestRoadIndex index = withReadLock(dataSet, () -> {
+            // Order by the distance to the highways themselves; their bounding box covers most of the addresses
+            // along a long or bent street
+            final NearestRoadIndex highwayIndex = new NearestRoadIndex(highways);
+            final List<OsmPrimitive> sorted = addresses.parallelStream()
+                    .map(address -> new AbstractMap.SimpleImmutableEntry<>(address,
+                            distanceSq(highwayIndex, highwaySet, address)))
+                    .sorted(Map.Entry.comparingByValue()).map(Map.Entry::getKey).collect(Collectors.toList());
+            addresses.clear();
+            addresses.addAll(sorted);
+            return new NearestRoadIndex(roads);
+        });
+        for (int start = 0; start < addresses.size() && !this.cancelled; start += BATCH_SIZE) {
+            final List<OsmPrimitive> batch = addresses.subList(start, Math.min(addresses.size(), start + BATCH_SIZE));
+            final List<Candidate> candidates = withReadLock(dataSet, () -> batch.parallelStream().map(address -> {
+                final NearestRoadIndex.Match match = index.getNearestMatchOf(address, highwaySet);
+                return match == null ? null : new Candidate(address, match);
+            }).filter(Objects::nonNull)
+                    .sorted(Comparator.comparingDouble(candidate -> candidate.getMatch().getDistanceSq()))
+                    .collect(Collectors.toList()));
+            offer(candidates);
+        }
+    }
+
+    /**
+     * Get the (squared, in projected units) distance between an address and the closest of the highways.
+     * Only used for ordering.
+     */
+    private static double distanceSq(NearestRoadIndex highwayIndex, Set<OsmPrimitive> highways,
+            OsmPrimitive address) {
+        final NearestRoadIndex.Match match = highwayIndex.getNearestMatchOf(address, highways);
+        return match == null ? Double.POSITIVE_INFINITY : match.getDistanceSq();
+    }
+
+    /**
+     * Run an action with the read lock of a dataset, so that coordinates and tags do not change underneath it
+     *
+     * @param dataSet The dataset to lock, may be {@code null} for primitives that are not in a dataset
+     * @param action  The action to run
+     * @param <T>     The result type
+     * @return The result of the action
+     */
+    private static <T> T withReadLock(DataSet dataSet, Supplier<T> action) {
+        if (dataSet == null) {
+            return action.get();
+        }
+        dataSet.getReadLock().lock();
+        try {
+            return action.get();
+        } finally {
+            dataSet.getReadLock().unlock();
+        }
+    }
+
+    private void offer(List<Candidate> candidates) {
+        final CompletableFuture<Candidate> toComplete;
+        final Candidate candidate;
+        synchronized (this) {
+            this.found += candidates.size();
+            this.ready.addAll(candidates);
+            if (this.waiting == null || this.ready.isEmpty()) {
+                return;
+            }
+            toComplete = this.waiting;
+            candidate = this.ready.poll();
+            this.waiting = null;
+        }
+        toComplete.complete(candidate);
+    }
+
+    private void finish(Throwable throwable) {
+        final CompletableFuture<Candidate> toComplete;
+        synchronized (this) {
+            this.finished = true;
+            this.failure = throwable;
+            toComplete = this.waiting;
+            this.waiting = null;
+        }
+        if (toComplete != null) {
+            complete(toComplete, throwable);
+        }
+    }
+
+    private static void complete(CompletableFuture<Candidate> future, Throwable throwable) {
+        if (throwable != null) {
+            future.completeExceptionally(throwable);
+        } else {
+            future.complete(null);
+        }
+    }
+
+    /**
+     * Get the next candidate
+     *
+     * @return A future with the next candidate, or {@code null} once all addresses have been checked
+     */
+    @Nonnull
+    synchronized CompletableFuture<Candidate> next() {
+        if (!this.ready.isEmpty()) {
+            return CompletableFuture.completedFuture(this.ready.poll());
+        }
+        final CompletableFuture<Candidate> future = new CompletableFuture<>();
+        if (this.finished) {
+            complete(future, this.failure);
+        } else {
+            this.waiting = future;
+        }
+        return future;
+    }
+
+    /**
+     * Stop checking addresses. Candidates that are already available can still be retrieved.
+     */
+    void cancel() {
+        this.cancelled = true;
+    }
+
+    /**
+     * Check if all addresses have been checked
+     *
+     * @return {@code true} if no more candidates will be found
+     */
+    synchronized boolean isFinished() {
+        return this.finished;
+    }
+
+    /**
+     * Get the number of candidates found so far
+     *
+     * @return The number of candidates found so far
+     */
+    synchronized int getFound() {
+        return this.found;
+    }
+
+    /**
+     * Count the candidates that are available but have not been retrieved yet
+     *
+     * @param filter The candidates to count
+     * @return The number of available candidates that match the filter
+     */
+    synchronized int countReady(@Nonnull Predicate<Candidate> filter) {
+        return (int) this.ready.stream().filter(filter).count();
+    }
+
+    /**
+     * An address that should follow a rename
+     */
+    static final class Candidate {
+        private final OsmPrimitive address;
+        private final NearestRoadIndex.Match match;
+
+        Candidate(@Nonnull OsmPrimitive address, @Nonnull NearestRoadIndex.Match match) {
+            this.address = address;
+            this.match = match;
+        }
+
+        /**
+         * Get the address
+         *
+         * @return The primitive with the old {@code addr:street}
+         */
+        @Nonnull
+        OsmPrimitive getAddress() {
+            return this.address;
+        }
+
+        /**
+         * Get the closest renamed highway
+         *
+         * @return The closest renamed highway and its closest segment
+         */
+        @Nonnull
+        NearestRoadIndex.Match getMatch() {
+            return this.match;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+
+import jakarta.annotation.Nonnull;
+
+/**
+ * Read the addresses of a street from {@code type=associatedStreet} and {@code type=street} relations.
+ * <p>
+ * The members of these relations belong to the street by definition, so no geometry is needed to decide which
+ * highway they belong to.
+ *
+ * @author Taylor Smock
+ */
+final class AssociatedStreets {
+    private AssociatedStreets() {
+        // Hide constructor
+    }
+
+    /**
+     * Check if a relation groups the parts of a street
+     *
+     * @param relation The relation to check
+     * @return {@code true} if the relation is an {@code associatedStreet} or {@code street} relation
+     */
+    static boolean isStreetRelation(@Nonnull Relation relation) {
+        return !relation.isDeleted() && relation.hasTag("type", "associatedStreet", "street");
+    }
+
+    /**
+     * Get the street relations that a highway is a {@code street} member of
+     *
+     * @param highway The highway
+     * @return The relations
+     */
+    private static List<Relation> getStreetRelations(OsmPrimitive highway) {
+        final List<Relation> relations = new ArrayList<>();
+        for (OsmPrimitive referrer : highway.getReferrers()) {
+            if (referrer instanceof Relation && isStreetRelation((Relation) referrer)) {
+                for (RelationMember member : ((Relation) referrer).getMembers()) {
+                    if (member.getMember() == highway && "street".equals(member.getRole())) {
+                        relations.add((Relation) referrer);
+                        break;
+                    }
+                }
+            }
+        }
+        return relations;
+    }
+
+    /**
+     * Get the street relations that highways are {@code street} members of
+     *
+     * @param highways The highways
+     * @return The relations
+     */
+    @Nonnull
+    static Set<Relation> getRelations(@Nonnull Collection<? extends OsmPrimitive> highways) {
+        final Set<Relation> relations = new LinkedHashSet<>();
+        for (OsmPrimitive highway : highways) {
+            relations.addAll(getStreetRelations(highway));
+        }
+        return relations;
+    }
+
+    /**
+     * Get the addresses that street relations assign to highways
+     *
+     * @param highways The highways
+     * @param name     The {@code addr:street} of the addresses to return
+     * @return The addresses, mapped to a highway of the same relation
+     */
+    @Nonnull
+    static Map<OsmPrimitive, OsmPrimitive> getAddresses(@Nonnull Collection<? extends OsmPrimitive> highways,
+            @Nonnull String name) {
+        final Map<OsmPrimitive, OsmPrimitive> addresses = new LinkedHashMap<>();
+        for (OsmPrimitive highway : highways) {
+            for (Relation relation : getStreetRelations(highway)) {
+                for (RelationMember member : relation.getMembers()) {
+                    if (("house".equals(member.getRole()) || "address".equals(member.getRole()))
+                            && !member.getMember().isDeleted()
+                            && name.equals(member.getMember().get(ModifyWays.ADDR_STREET))) {
+                        addresses.putIfAbsent(member.getMember(), highway);
+                    }
+                }
+            }
+        }
+        return addresses;
+    }
+}
@@ -0,0 +1,151 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.data.projection.Projection;
+import org.openstreetmap.josm.data.projection.ProjectionRegistry;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+/**
+ * The area around renamed highways in which addresses may follow the rename.
+ * <p>
+ * Addresses with the old name further away than {@link #DISTANCE} from the renamed highways (e.g. a same-named
+ * street in another town) are not considered. The distance is measured to the geometry of the highways, not to their
+ * bounding box, since the box of a diagonal or bent highway covers much more than the area around it. A road that
+ * is closer to an address in the corridor than the renamed highways is then within twice the distance of the
+ * highways, so only the roads in the bounding box grown by twice the distance are looked at. The primitives are
+ * found with a spatial search of the dataset, so the work depends on the density of the data around the highways,
+ * not on how common the name is.
+ *
+ * @author Taylor Smock
+ */
+final class Corridor {
+    /** The distance in metres around the renamed highways to look for addresses. {@code 0} uses the whole layer. */
+    static final IntegerProperty DISTANCE = new IntegerProperty("highwaynamemodification.corridor.distance", 0);
+
+    /** The (approximate) length of a degree of latitude in metres */
+    private static final double METRES_PER_DEGREE = 111_320;
+
+    private final int distance;
+    private final BBox addressArea;
+    private final List<OsmPrimitive> primitives;
+    private final Set<OsmPrimitive> highways;
+    private final NearestRoadIndex highwayIndex;
+
+    private Corridor(int distance, BBox addressArea, List<OsmPrimitive> primitives,
+            Collection<? extends OsmPrimitive> highways) {
+        this.distance = distance;
+        this.addressArea = addressArea;
+        this.primitives = primitives;
+        this.highways = new LinkedHashSet<>(highways);
+        this.highwayIndex = new NearestRoadIndex(this.highways);
+    }
+
+    /**
+     * Find the primitives around highways. This read locks the dataset, so it should be called on a thread that
+     * already holds the read lock, if any thread does.
+     *
+     * @param dataSet  The dataset to search
+     * @param highways The renamed highways
+     * @return The corridor, or {@code null} if the corridor is disabled or the highways have no location
+     */
+    @Nullable
+    static Corridor search(@Nonnull DataSet dataSet, @Nonnull Collection<? extends OsmPrimitive> highways) {
+        final int distance = DISTANCE.get();
+        if (distance <= 0) {
+            return null;
+        }
+        final BBox bounds = new BBox();
+        highways.forEach(highway -> bounds.add(highway.getBBox()));
+        if (!bounds.isValid()) {
+            return null;
+        }
+        return new Corridor(distance, buffer(bounds, distance),
+                dataSet.searchPrimitives(buffer(bounds, 2.0 * distance)), highways);
+    }
+
+    /**
+     * Grow a bounding box
+     *
+     * @param bounds The bounding box
+     * @param metres The distance to grow it by
+     * @return A new bounding box
+     */
+    static BBox buffer(BBox bounds, double metres) {
+        final double maxLat = Math.max(Math.abs(bounds.getTopLeftLat()), Math.abs(bounds.getBottomRightLat()));
+        final double latDelta = metres / METRES_PER_DEGREE;
+        // Use the latitude furthest from the equator, so the box is wide enough everywhere
+        final double lonDelta = metres / (METRES_PER_DEGREE * Math.max(0.01, Math.cos(Math.toRadians(maxLat))));
+        return new BBox(Math.max(-180, bounds.getTopLeftLon() - lonDelta),
+                Math.max(-90, bounds.getBottomRightLat() - latDelta),
+                Math.min(180, bounds.getBottomRightLon() + lonDelta), Math.min(90, bounds.getTopLeftLat() + latDelta));
+    }
+
+    /**
+     * Get the addresses in the corridor
+     *
+     * @param name The {@code addr:street} to look for
+     * @return The primitives with the name as {@code addr:street}, at most {@link #DISTANCE} from the highways
+     */
+    @Nonnull
+    List<OsmPrimitive> getAddresses(@Nonnull String name) {
+        final List<OsmPrimitive> addresses = new ArrayList<>();
+        for (OsmPrimitive primitive : this.primitives) {
+            if (!primitive.isDeleted() && name.equals(primitive.get(ModifyWays.ADDR_STREET))
+                    && this.addressArea.intersects(primitive.getBBox()) && getDistance(primitive) <= this.distance) {
+                addresses.add(primitive);
+            }
+        }
+        return addresses;
+    }
+
+    /**
+     * Get the distance from a primitive to the closest of the highways
+     *
+     * @param primitive The primitive
+     * @return The distance in metres, or {@link Double#POSITIVE_INFINITY} if it cannot be computed
+     */
+    private double getDistance(OsmPrimitive primitive) {
+        final NearestRoadIndex.Match match = this.highwayIndex.getNearestMatchOf(primitive, this.highways);
+        final BBox bbox = primitive.getBBox();
+        if (match == null || !bbox.isValid()) {
+            return Double.POSITIVE_INFINITY;
+        }
+        // The index measures in projected units; scale them by the length of a unit at the primitive
+        final Projection projection = ProjectionRegistry.getProjection();
+        final LatLon center = bbox.getCenter();
+        final EastNorth eastNorth = projection.latlon2eastNorth(center);
+        final double metresPerUnit = center.greatCircleDistance(projection.eastNorth2latlon(eastNorth.add(1, 0)));
+        return Math.sqrt(match.getDistanceSq()) * metresPerUnit;
+    }
+
+    /**
+     * Get the highways that addresses in the corridor may be closest to
+     *
+     * @param names The names to look for
+     * @return The highways with one of the names
+     */
+    @Nonnull
+    List<OsmPrimitive> getHighways(@Nonnull String... names) {
+        final List<OsmPrimitive> highways = new ArrayList<>();
+        for (OsmPrimitive primitive : this.primitives) {
+            if (!primitive.isDeleted() && primitive.hasKey("highway") && primitive.hasTag("name", names)) {
+                highways.add(primitive);
+            }
+        }
+        return highways;
+    }
+}
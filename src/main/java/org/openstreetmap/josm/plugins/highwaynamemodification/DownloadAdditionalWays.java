@@ -1,27 +1,30 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.plugins.highwaynamemodification;
 
-import static java.util.function.Predicate.not;
-
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
 import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.BBox;
 import org.openstreetmap.josm.data.osm.DataIntegrityProblemException;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.DataSetMerger;
+import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
-import org.openstreetmap.josm.gui.MainApplication;
-import org.openstreetmap.josm.gui.layer.Layer;
-import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.preferences.DoubleProperty;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
 import org.openstreetmap.josm.io.OsmTransferException;
 import org.openstreetmap.josm.io.OverpassDownloadReader;
@@ -35,32 +38,34 @@ import jakarta.annotation.Nonnull;
  */
 public final class DownloadAdditionalWays {
 
-    static HashMap<OsmDataLayer, HashMap<String, HashSet<OsmPrimitive>>> downloadedLayerWays = new HashMap<>();
+    /** The size of the download tiles in degrees */
+    static final DoubleProperty TILE_SIZE = new DoubleProperty("highwaynamemodification.overpass.tilesize", 0.04);
+    /** The number of tiles to download at the same time */
+    static final IntegerProperty THREADS = new IntegerProperty("highwaynamemodification.overpass.threads", 2);
+    /** The number of times to retry a failed tile download */
+    static final IntegerProperty RETRIES = new IntegerProperty("highwaynamemodification.overpass.retries", 2);
+    /** The distance around the highway geometry to download, in degrees */
+    private static final double MARGIN = 0.01;
+
+    /** The names that have already been downloaded around each highway */
+    static final DownloadedWaysRegistry DOWNLOADED_WAYS = new DownloadedWaysRegistry();
+    /** The Overpass requests that are in progress or done, so that covered requests can share them */
+    static final OverpassRequestRegistry REQUESTS = new OverpassRequestRegistry();
 
     private DownloadAdditionalWays() {
         // Hide constructor
     }
 
     /**
-     * Check if we have already downloaded a way
+     * Check if we have already downloaded the data for a name around some ways
      *
      * @param ways Ways that we (may) have downloaded
+     * @param name The name to check
      * @param <T>  Some class that extends {@link OsmPrimitive}
-     * @return true if all of the ways have been downloaded on the same layer
+     * @return true if all of the ways are on the same layer, and the data for the name has been downloaded around them
      */
-    public static <T extends OsmPrimitive> boolean checkIfDownloaded(Collection<T> ways) {
-        boolean rValue = false;
-        final Collection<Layer> layers = new ArrayList<>(MainApplication.getLayerManager().getLayers());
-        downloadedLayerWays.keySet().removeIf(not(layers::contains));
-        for (HashMap<String, HashSet<OsmPrimitive>> map : downloadedLayerWays.values()) {
-            for (HashSet<OsmPrimitive> set : map.values()) {
-                if (set.containsAll(ways)) {
-                    rValue = true;
-                    break;
-                }
-            }
-        }
-        return rValue;
+    public static <T extends OsmPrimitive> boolean checkIfDownloaded(Collection<T> ways, String name) {
+        return DOWNLOADED_WAYS.isDownloaded(ways, name);
     }
 
     /**
@@ -75,91 +80,253 @@ public final class DownloadAdditionalWays {
     @Nonnull
     public static <T extends OsmPrimitive> CompletableFuture<Collection<OsmPrimitive>> getAdditionalWays(
             @Nonnull Collection<T> highways, @Nonnull String... oldNames) {
-        HashSet<T> notDownloaded = new HashSet<>();
-        HashSet<String> otherNames = new HashSet<>();
-        HashMap<String, HashSet<OsmPrimitive>> tDownloadedWays = new HashMap<>();
-        OsmDataLayer layer = MainApplication.getLayerManager().getActiveDataLayer();
-        HashMap<String, HashSet<OsmPrimitive>> downloadedWays = downloadedLayerWays.getOrDefault(layer,
-                new HashMap<>());
+        final Set<String> otherNames = new HashSet<>(Arrays.asList(oldNames));
         for (T highway : highways) {
-            boolean alreadyDownloaded = false;
             for (String key : highway.keySet()) {
                 if (key.contains("name") && !key.contains("tiger") && !key.contains("type") && !key.contains("base")) {
-                    String tName = highway.get(key);
-                    HashSet<OsmPrimitive> tDownloadedHighways = downloadedWays.getOrDefault(key.concat(tName),
-                            new HashSet<>());
-                    otherNames.add(tName);
-                    if (tDownloadedHighways.contains(highway))
-                        alreadyDownloaded = true;
-                    tDownloadedHighways.add(highway);
-                    tDownloadedWays.put(key.concat(tName), tDownloadedHighways);
+                    otherNames.add(highway.get(key));
                 }
             }
-            if (!alreadyDownloaded)
+        }
+        final List<T> notDownloaded = new ArrayList<>();
+        for (T highway : highways) {
+            if (!DOWNLOADED_WAYS.isDownloaded(highway, otherNames)) {
                 notDownloaded.add(highway);
+            }
         }
-        downloadedLayerWays.put(layer, downloadedWays);
         if (notDownloaded.isEmpty())
             return CompletableFuture.completedFuture(Collections.emptyList());
-        T initialWay = notDownloaded.iterator().next();
-        final Bounds bound = new Bounds(initialWay.getBBox().getBottomRight());
-        final DataSet ds1 = initialWay.getDataSet();
-        for (T highway : notDownloaded) {
-            final BBox bbox = new BBox(highway.getBBox());
-            bbox.add(bbox.getTopLeftLon() - 0.01, bbox.getTopLeftLat() + 0.01);
-            bbox.add(bbox.getTopLeftLon() + 0.01, bbox.getTopLeftLat() - 0.01);
-            bbox.add(bbox.getBottomRightLon() + 0.01, bbox.getBottomRightLat() - 0.01);
-            bbox.add(bbox.getBottomRightLon() - 0.01, bbox.getBottomRightLat() + 0.01);
-            bound.extend(bbox.getTopLeft());
-            bound.extend(bbox.getBottomRight());
-            for (Bounds bounding : ds1.getDataSourceBounds()) {
-                if (bounding.toBBox().bounds(bbox))
-                    return CompletableFuture.completedFuture(Collections.emptyList());
+        final DataSet ds1 = notDownloaded.get(0).getDataSet();
+        final Collection<Bounds> tiles = getTiles(notDownloaded);
+        final List<Bounds> dataSourceBounds = ds1.getDataSourceBounds();
+        tiles.removeIf(tile -> dataSourceBounds.stream().anyMatch(b -> b.toBBox().bounds(tile.toBBox())));
+        if (tiles.isEmpty()) {
+            DOWNLOADED_WAYS.markDownloaded(notDownloaded, otherNames);
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+        // Fetch the tiles concurrently, merging each one as soon as it arrives. Names that another request already
+        // covers in a tile are not downloaded again; the pending or completed request is shared instead.
+        final Set<CompletableFuture<Collection<OsmPrimitive>>> futures = new LinkedHashSet<>(tiles.size());
+        for (Bounds tile : tiles) {
+            final CompletableFuture<Collection<OsmPrimitive>> download = new CompletableFuture<>();
+            final Set<String> toDownload = new HashSet<>();
+            for (String name : otherNames) {
+                final CompletableFuture<Collection<OsmPrimitive>> existing = REQUESTS.claim(ds1, name, tile,
+                        download);
+                if (existing == null) {
+                    toDownload.add(name);
+                } else {
+                    futures.add(existing);
+                }
+            }
+            if (toDownload.isEmpty()) {
+                // Nothing was claimed, so nobody is waiting for this download
+                continue;
             }
+            final String query = new OverpassQueryBuilder().names(toDownload)
+                    .outputMode(OverpassQueryBuilder.OutputMode.META).build();
+            Logging.info(query);
+            CompletableFuture.supplyAsync(() -> {
+                final DataSet dataSet = downloadTile(tile, query);
+                // null tells the registry that the request failed, so that it can be retried
+                return dataSet == null ? null : mergeData(ds1, dataSet, toDownload);
+            }, HighwayNameExecutors.getIoExecutor()).whenComplete((result, throwable) -> {
+                if (throwable != null) {
+                    download.completeExceptionally(throwable);
+                } else {
+                    download.complete(result);
+                }
+            });
+            futures.add(download);
         }
-        final StringBuilder overpassQuery = new StringBuilder(118);
-        overpassQuery.append("[out:xml][timeout:15][bbox:{{bbox}}];(");
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            final Collection<OsmPrimitive> primitives = new LinkedHashSet<>();
+            boolean failed = false;
+            for (CompletableFuture<Collection<OsmPrimitive>> future : futures) {
+                final Collection<OsmPrimitive> result = future.join();
+                if (result == null) {
+                    failed = true;
+                    continue;
+                }
+                for (OsmPrimitive primitive : result) {
+                    // Shared downloads may include names that are not of interest here
+                    if (primitive.hasTag("name", otherNames)) {
+                        primitives.add(primitive);
+                    }
+                }
+            }
+            if (!failed) {
+                DOWNLOADED_WAYS.markDownloaded(notDownloaded, otherNames);
+            }
+            return primitives;
+        });
+    }
 
-        otherNames.addAll(Arrays.asList(oldNames));
-        for (String tName : otherNames) {
-            // TODO if Overpass ever allows wildcard keys without wildcard values, replace
-            // this.
-            overpassQuery.append(
-                    "node[~\"name\"~\"^NAME$\"];way[~\"name\"~\"^NAME$\"];".concat("relation[~\"name\"~\"^NAME$\"];")
-                            .concat("node[\"addr:street\"=\"NAME\"];way[\"addr:street\"=\"NAME\"];")
-                            .concat("relation[\"addr:street\"=\"NAME\"];").replace("NAME", tName));
+    /**
+     * Get the areas to download for highways. The areas are aligned to a fixed grid, so that overlapping renames can
+     * share them. Each grid tile is clipped to the part of it that is within {@link #MARGIN} of the highway geometry,
+     * so a short street does not download whole tiles.
+     *
+     * @param highways The highways to get tiles for
+     * @return The (clipped) tiles
+     */
+    @Nonnull
+    static Collection<Bounds> getTiles(@Nonnull Collection<? extends OsmPrimitive> highways) {
+        final double tileSize = TILE_SIZE.get();
+        // The points must be close enough that the areas around them overlap
+        final double step = Math.min(tileSize / 2, MARGIN);
+        final Map<Bounds, Bounds> tiles = new LinkedHashMap<>();
+        for (OsmPrimitive highway : highways) {
+            if (highway instanceof Way) {
+                LatLon previous = null;
+                for (Node node : ((Way) highway).getNodes()) {
+                    if (!node.isLatLonKnown()) {
+                        continue;
+                    }
+                    final LatLon current = node.getCoor();
+                    if (previous != null) {
+                        // Sample long segments so that the tiles between the nodes are not skipped
+                        final double length = Math.max(Math.abs(current.lat() - previous.lat()),
+                                Math.abs(current.lon() - previous.lon()));
+                        final int steps = (int) Math.ceil(length / step);
+                        for (int i = 1; i < steps; i++) {
+                            addTiles(tiles, previous.interpolate(current, i / (double) steps), tileSize);
+                        }
+                    }
+                    addTiles(tiles, current, tileSize);
+                    previous = current;
+                }
+            } else if (highway.getBBox().isValid()) {
+                // Cover the whole bounding box
+                final BBox bbox = highway.getBBox();
+                final double maxLat = bbox.getTopLeftLat();
+                final double maxLon = bbox.getBottomRightLon();
+                for (double lat = bbox.getBottomRightLat(); lat < maxLat + step; lat += step) {
+                    for (double lon = bbox.getTopLeftLon(); lon < maxLon + step; lon += step) {
+                        addTiles(tiles, new LatLon(Math.min(lat, maxLat), Math.min(lon, maxLon)), tileSize);
+                    }
+                }
+            }
         }
+        return new ArrayList<>(tiles.values());
+    }
 
-        overpassQuery.append(");(._;<;);(._;>;);out meta;");
-
-        Logging.info(overpassQuery.toString());
+    private static void addTiles(Map<Bounds, Bounds> tiles, LatLon point, double tileSize) {
+        final double minLat = Math.max(-90, point.lat() - MARGIN);
+        final double minLon = Math.max(-180, point.lon() - MARGIN);
+        final double maxLat = Math.min(90, point.lat() + MARGIN);
+        final double maxLon = Math.min(180, point.lon() + MARGIN);
+        final long minX = (long) Math.floor(minLon / tileSize);
+        final long maxX = (long) Math.floor(maxLon / tileSize);
+        final long minY = (long) Math.floor(minLat / tileSize);
+        final long maxY = (long) Math.floor(maxLat / tileSize);
+        for (long y = minY; y <= maxY; y++) {
+            for (long x = minX; x <= maxX; x++) {
+                final Bounds tile = new Bounds(Math.max(-90, y * tileSize), Math.max(-180, x * tileSize),
+                        Math.min(90, (y + 1) * tileSize), Math.min(180, (x + 1) * tileSize));
+                final Bounds clipped = new Bounds(Math.max(minLat, tile.getMinLat()),
+                        Math.max(minLon, tile.getMinLon()), Math.min(maxLat, tile.getMaxLat()),
+                        Math.min(maxLon, tile.getMaxLon()));
+                if (clipped.getMinLat() < clipped.getMaxLat() && clipped.getMinLon() < clipped.getMaxLon()) {
+                    tiles.merge(tile, clipped, (existing, added) -> {
+                        existing.extend(added);
+                        return existing;
+                    });
+                }
+            }
+        }
+    }
 
-        final OverpassDownloadReader overpass = new OverpassDownloadReader(bound,
-                OverpassDownloadReader.OVERPASS_SERVER.get(), overpassQuery.toString());
+    /**
+     * Download a single tile, retrying on transfer errors
+     *
+     * @param tile  The tile to download
+     * @param query The Overpass query
+     * @return The downloaded data, or {@code null} if it could not be downloaded
+     */
+    private static DataSet downloadTile(Bounds tile, String query) {
+        return downloadTile(OverpassCache.getInstance(), tile, query);
+    }
 
-        Supplier<Collection<OsmPrimitive>> mergeData = () -> {
-            Collection<OsmPrimitive> primitives = Collections.emptyList();
-            final DataSet dataSet;
-            try {
-                dataSet = overpass.parseOsm(NullProgressMonitor.INSTANCE);
-            } catch (DataIntegrityProblemException | OsmTransferException e) {
-                Logging.error(e);
-                return Collections.emptyList();
-            }
+    /**
+     * Download a single tile, retrying on transfer errors
+     *
+     * @param cache The cache to look in first, and to store the download in
+     * @param tile  The tile to download
+     * @param query The Overpass query
+     * @return The downloaded data, or {@code null} if it could not be downloaded
+     */
+    static DataSet downloadTile(OverpassCache cache, Bounds tile, String query) {
+        final DataSet cached = cache.get(query, tile);
+        if (cached != null) {
+            return cached;
+        }
+        final int retries = Math.max(0, RETRIES.get());
+        for (int attempt = 0; attempt <= retries; attempt++) {
             try {
-                ds1.beginUpdate();
+                final DataSet dataSet = new OverpassDownloadReader(tile, OverpassDownloadReader.OVERPASS_SERVER.get(),
+                        query).parseOsm(NullProgressMonitor.INSTANCE);
                 if (dataSet != null) {
-                    primitives = new HashSet<>(dataSet.allPrimitives());
-                    new DataSetMerger(ds1, dataSet).merge(null, false);
-                    primitives = primitives.stream().map(ds1::getPrimitiveById)
-                            .filter(p -> p.hasTag("name", otherNames)).collect(Collectors.toList());
+                    cache.put(query, tile, dataSet);
+                }
+                return dataSet;
+            } catch (DataIntegrityProblemException e) {
+                Logging.error(e);
+                return null;
+            } catch (OsmTransferException e) {
+                if (attempt == retries) {
+                    Logging.error(e);
+                } else {
+                    Logging.warn("Overpass download of {0} failed, retrying ({1}/{2})", tile, attempt + 1, retries);
+                    Logging.debug(e);
+                    try {
+                        Thread.sleep(1000L << attempt);
+                    } catch (InterruptedException interruptedException) {
+                        Thread.currentThread().interrupt();
+                        return null;
+                    }
                 }
-            } finally {
-                ds1.endUpdate();
             }
-            downloadedWays.putAll(tDownloadedWays);
-            return primitives;
-        };
-        return CompletableFuture.supplyAsync(mergeData);
+        }
+        return null;
+    }
+
+    /**
+     * Merge downloaded data into a dataset. Each tile is merged on its own, so the layer is only locked for the
+     * merge of one tile at a time, and the downloaded data for a tile can be released as soon as it is merged.
+     *
+     * @param ds1        The dataset to merge into
+     * @param dataSet    The downloaded data
+     * @param otherNames The names of the primitives to return
+     * @return The merged primitives with one of the names
+     */
+    static Collection<OsmPrimitive> mergeData(DataSet ds1, DataSet dataSet, Collection<String> otherNames) {
+        if (dataSet == null) {
+            return Collections.emptyList();
+        }
+        // Only remember the ids of the (few) primitives we care about, instead of copying the whole download
+        final List<PrimitiveId> named = new ArrayList<>();
+        for (OsmPrimitive primitive : dataSet.allPrimitives()) {
+            if (primitive.hasTag("name", otherNames)) {
+                named.add(primitive.getPrimitiveId());
+            }
+        }
+        ds1.beginUpdate();
+        try {
+            new DataSetMerger(ds1, dataSet).merge(null, false);
+            // The dataset need not be the active layer, so the listener may never see the merge. Drop the index
+            // while the dataset is still locked, so nobody can rebuild it from a partially merged dataset.
+            StreetNameIndex.invalidate(ds1);
+        } finally {
+            ds1.endUpdate();
+        }
+        final List<OsmPrimitive> primitives = new ArrayList<>(named.size());
+        for (PrimitiveId id : named) {
+            final OsmPrimitive primitive = ds1.getPrimitiveById(id);
+            if (primitive != null) {
+                primitives.add(primitive);
+            }
+        }
+        return primitives;
     }
 }
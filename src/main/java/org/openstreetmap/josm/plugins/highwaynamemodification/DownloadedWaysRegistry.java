@@ -0,0 +1,115 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+/**
+ * Keep track of the names that additional data has been downloaded for, per highway.
+ * <p>
+ * Highways are stored by their {@link PrimitiveId}, so the registry does not keep primitives alive, and the
+ * datasets are weakly referenced, so the entries for a layer go away once the layer is closed. Lookups only depend on
+ * the number of highways checked, not on the number of previous downloads.
+ * <p>
+ * Only looking up the state for a dataset is synchronized; the state for a dataset uses concurrent maps, so the
+ * worker and the download threads do not block each other.
+ *
+ * @author Taylor Smock
+ */
+final class DownloadedWaysRegistry {
+    private final Map<DataSet, DataSetState> downloaded = Collections.synchronizedMap(new WeakHashMap<>());
+
+    @Nullable
+    private DataSetState getState(@Nullable DataSet dataSet) {
+        return dataSet == null ? null : this.downloaded.get(dataSet);
+    }
+
+    @Nonnull
+    private DataSetState getOrCreateState(@Nonnull DataSet dataSet) {
+        return this.downloaded.computeIfAbsent(dataSet, ignored -> new DataSetState());
+    }
+
+    /**
+     * Check if data has been downloaded for a name around all of the highways
+     *
+     * @param highways The highways to check
+     * @param name     The name that the data should have been downloaded for
+     * @return {@code true} if all of the highways are in the same dataset, and data has been downloaded for the name
+     *         around each of them
+     */
+    boolean isDownloaded(@Nonnull Collection<? extends OsmPrimitive> highways, @Nonnull String name) {
+        if (highways.isEmpty()) {
+            return false;
+        }
+        final DataSet dataSet = highways.iterator().next().getDataSet();
+        final DataSetState state = getState(dataSet);
+        if (state == null) {
+            return false;
+        }
+        for (OsmPrimitive highway : highways) {
+            final Set<String> highwayNames = state.names.get(highway.getPrimitiveId());
+            if (highway.getDataSet() != dataSet || highwayNames == null || !highwayNames.contains(name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check if data has been downloaded for all of the names around a highway
+     *
+     * @param highway The highway to check
+     * @param names   The names that the data should have been downloaded for
+     * @return {@code true} if data has been downloaded for all of the names
+     */
+    boolean isDownloaded(@Nonnull OsmPrimitive highway, @Nonnull Collection<String> names) {
+        final DataSetState state = getState(highway.getDataSet());
+        final Set<String> highwayNames = state == null ? null : state.names.get(highway.getPrimitiveId());
+        return highwayNames != null && highwayNames.containsAll(names);
+    }
+
+    /**
+     * Record that data has been downloaded for names around highways
+     *
+     * @param highways The highways that data has been downloaded around
+     * @param names    The names that were downloaded
+     */
+    void markDownloaded(@Nonnull Collection<? extends OsmPrimitive> highways, @Nonnull Collection<String> names) {
+        for (OsmPrimitive highway : highways) {
+            if (highway.getDataSet() != null) {
+                getOrCreateState(highway.getDataSet()).names
+                        .computeIfAbsent(highway.getPrimitiveId(), ignored -> ConcurrentHashMap.newKeySet())
+                        .addAll(names);
+            }
+        }
+    }
+
+    /**
+     * Get the number of datasets with downloaded data. Closed layers are only removed once they are garbage
+     * collected.
+     *
+     * @return The number of datasets in the registry
+     */
+    int size() {
+        return this.downloaded.size();
+    }
+
+    /**
+     * The state for a single dataset
+     */
+    private static final class DataSetState {
+        private final ConcurrentMap<PrimitiveId, Set<String>> names = new ConcurrentHashMap<>();
+    }
+}
@@ -0,0 +1,67 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import java.util.Collection;
+import java.util.function.Supplier;
+
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.command.SequenceCommand;
+import org.openstreetmap.josm.data.osm.DataSet;
+
+/**
+ * The command for the changes made by this plugin. All changes are made in a single dataset update, and the
+ * {@link HighwayNameListener} ignores renames made while this command is executed, undone or redone, since the
+ * plugin has already handled them.
+ *
+ * @author Taylor Smock
+ */
+final class HighwayNameCommand extends SequenceCommand {
+    /** The listener is called on the thread that changes the data, so a thread local is enough */
+    private static final ThreadLocal<Boolean> EXECUTING = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    /**
+     * Create a new command
+     *
+     * @param name     The description of the command
+     * @param commands The commands to run
+     */
+    HighwayNameCommand(String name, Collection<Command> commands) {
+        super(name, commands);
+    }
+
+    /**
+     * Check if the current thread is running a {@link HighwayNameCommand}
+     *
+     * @return {@code true} if the changes being made come from this plugin
+     */
+    static boolean isExecuting() {
+        return EXECUTING.get();
+    }
+
+    @Override
+    public boolean executeCommand() {
+        return run(super::executeCommand);
+    }
+
+    @Override
+    public void undoCommand() {
+        run(() -> {
+            super.undoCommand();
+            return Boolean.TRUE;
+        });
+    }
+
+    private <T> T run(Supplier<T> action) {
+        final boolean wasExecuting = EXECUTING.get();
+        final DataSet ds = getAffectedDataSet();
+        EXECUTING.set(Boolean.TRUE);
+        ds.beginUpdate();
+        try {
+            return action.get();
+        } finally {
+            // The events are fired when the update ends, so this has to happen before resetting the flag
+            ds.endUpdate();
+            EXECUTING.set(wasExecuting);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.tools.Logging;
+
+import jakarta.annotation.Nonnull;
+
+/**
+ * The executors for the background work of this plugin, so that nothing runs on the JVM wide common pool.
+ * <p>
+ * Blocking work (Overpass downloads) runs in a fixed size pool of {@link DownloadAdditionalWays#THREADS} threads.
+ * CPU work (address assignment) runs in a fork join pool, so that parallel streams started from it stay in it.
+ * Both are created when they are first needed, and are shut down when the plugin is destroyed.
+ *
+ * @author Taylor Smock
+ */
+final class HighwayNameExecutors {
+    /** The number of threads for CPU work. {@code 0} uses one less than the number of processors. */
+    static final IntegerProperty CPU_THREADS = new IntegerProperty("highwaynamemodification.executor.cpu.threads", 0);
+
+    private static ThreadPoolExecutor ioExecutor;
+    private static ForkJoinPool cpuExecutor;
+
+    private HighwayNameExecutors() {
+        // Hide constructor
+    }
+
+    /**
+     * Get the executor for blocking work
+     *
+     * @return The executor
+     */
+    @Nonnull
+    static synchronized ExecutorService getIoExecutor() {
+        if (ioExecutor == null) {
+            final int threads = Math.max(1, DownloadAdditionalWays.THREADS.get());
+            final AtomicInteger count = new AtomicInteger();
+            ioExecutor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    runnable -> {
+                        final Thread thread = new Thread(runnable,
+                                "highwaynamemodification-io-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            // Idle threads are not kept around, since downloads are rare
+            ioExecutor.allowCoreThreadTimeOut(true);
+        }
+        return ioExecutor;
+    }
+
+    /**
+     * Get the executor for CPU heavy work
+     *
+     * @return The executor
+     */
+    @Nonnull
+    static synchronized ForkJoinPool getCpuExecutor() {
+        if (cpuExecutor == null) {
+            final int threads = CPU_THREADS.get() > 0 ? CPU_THREADS.get()
+                    : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            cpuExecutor = new ForkJoinPool(threads, pool -> {
+                final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("highwaynamemodification-cpu-" + thread.getPoolIndex());
+                thread.setDaemon(true);
+                return thread;
+            }, null, false);
+        }
+        return cpuExecutor;
+    }
+
+    /**
+     * Get the active and queued tasks of the executors
+     *
+     * @return A short description of the executors, for logging
+     */
+    @Nonnull
+    static synchronized String getStatistics() {
+        final StringBuilder statistics = new StringBuilder("io: ");
+        if (ioExecutor == null) {
+            statistics.append("not started");
+        } else {
+            statistics.append(ioExecutor.getActiveCount()).append(" active, ").append(ioExecutor.getQueue().size())
+                    .append(" queued, ").append(ioExecutor.getCompletedTaskCount()).append(" completed");
+        }
+        statistics.append("; cpu: ");
+        if (cpuExecutor == null) {
+            statistics.append("not started");
+        } else {
+            statistics.append(cpuExecutor.getActiveThreadCount()).append(" active, ")
+                    .append(cpuExecutor.getQueuedSubmissionCount() + cpuExecutor.getQueuedTaskCount())
+                    .append(" queued, ").append(cpuExecutor.getStealCount()).append(" steals");
+        }
+        return statistics.toString();
+    }
+
+    /**
+     * Stop all background work. The executors are created again if they are needed afterwards.
+     */
+    static synchronized void shutdown() {
+        Logging.debug("Highway name modification executors: {0}", getStatistics());
+        if (ioExecutor != null) {
+            ioExecutor.shutdownNow();
+            ioExecutor = null;
+        }
+        if (cpuExecutor != null) {
+            cpuExecutor.shutdownNow();
+            cpuExecutor = null;
+        }
+    }
+}
@@ -1,12 +1,14 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.plugins.highwaynamemodification;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
+import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
 import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent.DatasetEventType;
@@ -18,35 +20,48 @@ import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
 import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
 import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
 import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
-import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerAddEvent;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerChangeListener;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerOrderChangeEvent;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerRemoveEvent;
+import org.openstreetmap.josm.gui.layer.MainLayerManager.ActiveLayerChangeEvent;
+import org.openstreetmap.josm.gui.layer.MainLayerManager.ActiveLayerChangeListener;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.tools.Destroyable;
+
+import jakarta.annotation.Nullable;
 
 /**
  * The listener for name changes
  *
  * @author Taylor Smock
  */
-public class HighwayNameListener implements DataSetListener {
-    private static final String[] EMPTY_STRING_ARRAY = new String[0];
+public class HighwayNameListener
+        implements DataSetListener, LayerChangeListener, ActiveLayerChangeListener, Destroyable {
+    private final RenameScheduler scheduler = new RenameScheduler();
 
     @Override
     public void primitivesAdded(PrimitivesAddedEvent event) {
-        // Don't care
+        final StreetNameIndex index = StreetNameIndex.getExistingIndex(event.getDataset());
+        if (index != null) {
+            index.primitivesAdded(event.getPrimitives());
+        }
     }
 
     @Override
     public void primitivesRemoved(PrimitivesRemovedEvent event) {
-        // Don't care
+        final StreetNameIndex index = StreetNameIndex.getExistingIndex(event.getDataset());
+        if (index != null) {
+            index.primitivesRemoved(event.getPrimitives());
+        }
     }
 
     @Override
     public void tagsChanged(TagsChangedEvent event) {
-        final String[] oldNew = getOldNewName(event);
-        if (oldNew.length == 2) {
-            String newName = oldNew[1];
-            String oldName = oldNew[0];
-            if (newName.equals(oldName))
-                return;
-            performTagChanges(oldName, Collections.singleton(event));
+        updateIndex(event);
+        final String oldName = getRenamedFrom(event);
+        if (oldName != null) {
+            performTagChanges(oldName, Collections.singleton(event.getPrimitive()));
         }
     }
 
@@ -72,38 +87,118 @@ public class HighwayNameListener implements DataSetListener {
 
     @Override
     public void dataChanged(DataChangedEvent event) {
+        if (event != null && event.getEvents() == null && event.getDataset() != null) {
+            // Either the edit dataset changed, or an update with too many events (over 1000) to list them was
+            // collapsed. In both cases the index of the dataset may have missed changes.
+            StreetNameIndex.invalidate(event.getDataset());
+        }
         // Validation fixes don't call tagsChanged, so we call it for them.
         if (event == null || event.getEvents() == null)
             return;
-        final Map<String, List<TagsChangedEvent>> groupedEvents = event.getEvents().stream()
-                .filter(tEvent -> DatasetEventType.TAGS_CHANGED == tEvent.getType()).map(TagsChangedEvent.class::cast)
-                .collect(Collectors.groupingBy(tEvent -> String.join("----xxxx----", getOldNewName(tEvent))));
-        for (List<TagsChangedEvent> events : groupedEvents.values()) {
-            String[] newOldName = getOldNewName(events.get(0));
-            if (newOldName.length == 2) {
-                String oldName = newOldName[0];
-                performTagChanges(oldName, events);
+        // Most events in a large batch have nothing to do with highway names, so only allocate when needed
+        Map<NameChange, List<OsmPrimitive>> renames = null;
+        for (AbstractDatasetChangedEvent tEvent : event.getEvents()) {
+            final DatasetEventType type = tEvent.getType();
+            if (DatasetEventType.PRIMITIVES_ADDED == type) {
+                primitivesAdded((PrimitivesAddedEvent) tEvent);
+            } else if (DatasetEventType.PRIMITIVES_REMOVED == type) {
+                primitivesRemoved((PrimitivesRemovedEvent) tEvent);
+            } else if (DatasetEventType.TAGS_CHANGED == type) {
+                final TagsChangedEvent tagsChangedEvent = (TagsChangedEvent) tEvent;
+                updateIndex(tagsChangedEvent);
+                final String oldName = getRenamedFrom(tagsChangedEvent);
+                if (oldName != null) {
+                    if (renames == null) {
+                        renames = new LinkedHashMap<>();
+                    }
+                    final OsmPrimitive primitive = tagsChangedEvent.getPrimitive();
+                    renames.computeIfAbsent(new NameChange(oldName, primitive.get("name")), k -> new ArrayList<>())
+                            .add(primitive);
+                }
+            }
+        }
+        if (renames != null) {
+            for (Map.Entry<NameChange, List<OsmPrimitive>> rename : renames.entrySet()) {
+                performTagChanges(rename.getKey().getOldName(), rename.getValue());
             }
         }
     }
 
-    private void performTagChanges(String oldName, Collection<TagsChangedEvent> events) {
-        final Collection<OsmPrimitive> objects = events.stream().flatMap(event -> event.getPrimitives().stream())
-                .collect(Collectors.toList());
-        final ModifyWays modifyWays = new ModifyWays(objects, oldName, false, true, null);
-        MainApplication.worker.execute(modifyWays);
+    private void performTagChanges(String oldName, Collection<OsmPrimitive> objects) {
+        if (HighwayNameCommand.isExecuting()) {
+            // The plugin made this change itself, and has already handled the addresses
+            return;
+        }
+        this.scheduler.schedule(oldName, objects);
+    }
+
+    @Override
+    public void layerAdded(LayerAddEvent e) {
+        // Don't care
+    }
+
+    @Override
+    public void layerRemoving(LayerRemoveEvent e) {
+        if (e.getRemovedLayer() instanceof OsmDataLayer) {
+            // The index references the primitives of the layer, which would keep the dataset alive
+            StreetNameIndex.invalidate(((OsmDataLayer) e.getRemovedLayer()).getDataSet());
+        }
+    }
+
+    @Override
+    public void layerOrderChanged(LayerOrderChangeEvent e) {
+        // Don't care
+    }
+
+    @Override
+    public void activeOrEditLayerChanged(ActiveLayerChangeEvent e) {
+        // Only the edit dataset sends events to this listener, so the index of the previous one would go stale
+        final DataSet previous = e.getPreviousEditDataSet();
+        if (previous != null && previous != e.getSource().getEditDataSet()) {
+            StreetNameIndex.invalidate(previous);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        this.scheduler.shutdown();
+        StreetNameIndex.invalidateAll();
     }
 
-    private String[] getOldNewName(TagsChangedEvent event) {
+    /**
+     * Get the scheduler for the renames seen by this listener
+     *
+     * @return The scheduler
+     */
+    RenameScheduler getScheduler() {
+        return this.scheduler;
+    }
+
+    private static void updateIndex(TagsChangedEvent event) {
+        final StreetNameIndex index = StreetNameIndex.getExistingIndex(event.getDataset());
+        if (index != null) {
+            index.tagsChanged(event.getPrimitive(), event.getOriginalKeys());
+        }
+    }
+
+    /**
+     * Check if an event is a highway rename. The checks are ordered so that most other events are rejected with a
+     * single map lookup.
+     *
+     * @param event The event to check
+     * @return The old name of the highway, or {@code null} if the event is not a highway rename
+     */
+    @Nullable
+    private static String getRenamedFrom(TagsChangedEvent event) {
+        final String oldName = event.getOriginalKeys().get("name");
+        if (oldName == null) {
+            return null;
+        }
         final OsmPrimitive osm = event.getPrimitive();
-        final Map<String, String> originalKeys = event.getOriginalKeys();
-        if (osm.hasKey("highway") && originalKeys.containsKey("name") && osm.hasKey("name")) {
-            String newName = osm.get("name");
-            String oldName = originalKeys.get("name");
-            if (!newName.equals(oldName)) {
-                return new String[] { oldName, newName };
-            }
+        final String newName = osm.get("name");
+        if (newName == null || newName.equals(oldName) || !osm.hasKey("highway")) {
+            return null;
         }
-        return EMPTY_STRING_ARRAY;
+        return oldName;
     }
 }
@@ -40,6 +40,8 @@ public class HighwayNameModification extends Plugin implements Destroyable {
         listener = new HighwayNameListener();
 
         DatasetEventManager.getInstance().addDatasetListener(listener, FireMode.IMMEDIATELY);
+        MainApplication.getLayerManager().addLayerChangeListener(listener);
+        MainApplication.getLayerManager().addActiveLayerChangeListener(listener);
         highwayNameModificationAction = new HighwayNameChangeAction(tr(NAME), PLUGIN_IMAGE, listener);
         JMenu dataMenu = MainApplication.getMenu().dataMenu;
         MainMenu.add(dataMenu, highwayNameModificationAction);
@@ -49,6 +51,10 @@ public class HighwayNameModification extends Plugin implements Destroyable {
     public void destroy() {
         final JMenu dataMenu = MainApplication.getMenu().dataMenu;
         DatasetEventManager.getInstance().removeDatasetListener(listener);
+        MainApplication.getLayerManager().removeActiveLayerChangeListener(listener);
+        MainApplication.getLayerManager().removeLayerChangeListener(listener);
+        listener.destroy();
+        HighwayNameExecutors.shutdown();
         final Map<Action, Component> actions = Arrays.stream(dataMenu.getMenuComponents())
                 .filter(JMenuItem.class::isInstance).map(JMenuItem.class::cast)
                 .collect(Collectors.toMap(JMenuItem::getAction, component -> component));
@@ -4,33 +4,36 @@ package org.openstreetmap.josm.plugins.highwaynamemodification;
 import static org.openstreetmap.josm.tools.I18n.tr;
 
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import org.openstreetmap.josm.actions.AutoScaleAction;
 import org.openstreetmap.josm.command.ChangePropertyCommand;
+import org.openstreetmap.josm.command.Command;
 import org.openstreetmap.josm.data.UndoRedoHandler;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.IPrimitive;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
-import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.WaySegment;
-import org.openstreetmap.josm.data.osm.search.SearchCompiler;
-import org.openstreetmap.josm.data.osm.search.SearchParseError;
 import org.openstreetmap.josm.gui.ConditionalOptionPaneUtil;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.util.GuiHelper;
-import org.openstreetmap.josm.tools.Geometry;
-import org.openstreetmap.josm.tools.JosmRuntimeException;
 import org.openstreetmap.josm.tools.Logging;
-import org.openstreetmap.josm.tools.SubclassFilteredCollection;
 
 import jakarta.annotation.Nullable;
 
@@ -52,6 +55,9 @@ final class ModifyWays implements Runnable {
     private final boolean ignoreNewName;
     private Boolean recursive;
 
+    /** The tail of the queue of prompts for the user */
+    private static CompletableFuture<?> promptQueue = CompletableFuture.completedFuture(null);
+
     /**
      * Create a new {@link ModifyWays} object
      *
@@ -71,7 +77,6 @@ final class ModifyWays implements Runnable {
     }
 
     private static class DownloadAdditionalAsk implements Runnable {
-        private boolean done;
         private boolean download;
         private Boolean recursive;
 
@@ -102,181 +107,443 @@ final class ModifyWays implements Runnable {
                 break;
             default:
             }
-            done = true;
         }
+    }
 
-        /**
-         * Wait for the runnable to finish
-         *
-         * @return {@code true} if the download finished
-         * @throws InterruptedException If this thread was interrupted
-         */
-        public boolean get() throws InterruptedException {
-            while (!done) {
-                synchronized (this) {
-                    this.wait(100);
+    @Override
+    public void run() {
+        CompletableFuture<Collection<OsmPrimitive>> newWays = CompletableFuture
+                .completedFuture(Collections.emptyList());
+        if (originalName != null && downloadTask
+                && !DownloadAdditionalWays.checkIfDownloaded(wayChangingName, originalName)) {
+            final DownloadAdditionalAsk ask = new DownloadAdditionalAsk(this.recursive);
+            newWays = enqueuePrompt(() -> CompletableFuture.runAsync(ask, GuiHelper::runInEDT)).thenCompose(ignored -> {
+                if (ask.download) {
+                    this.recursive = ask.recursive;
+                    return DownloadAdditionalWays.getAdditionalWays(wayChangingName, originalName);
                 }
+                return CompletableFuture.completedFuture(Collections.emptyList());
+            });
+        }
+        newWays.thenComposeAsync(primitives -> {
+            // The dialogs start looking for addresses right away, and are shown one after another
+            final List<OsmPrimitive> recursiveHighways = getRecursiveHighways(primitives);
+            final List<Command> relationRenames = new ArrayList<>();
+            final List<CreateGuiAskDialog> dialogs = computeDialogs(recursiveHighways, relationRenames);
+            final List<Command> commands = new ArrayList<>(dialogs.size() + relationRenames.size() + 1);
+            CompletableFuture<Void> shown = CompletableFuture.completedFuture(null);
+            for (CreateGuiAskDialog dialog : dialogs) {
+                shown = shown.thenCompose(ignored -> enqueuePrompt(dialog::review)).thenAccept(command -> {
+                    if (command != null) {
+                        commands.add(command);
+                    }
+                });
+            }
+            return shown.thenCompose(ignored -> {
+                if (!recursiveHighways.isEmpty()) {
+                    commands.add(new ChangePropertyCommand(recursiveHighways, "name", getRecursiveName()));
+                }
+                commands.addAll(relationRenames);
+                return applyCommands(commands).thenApply(applied -> !recursiveHighways.isEmpty());
+            });
+        }, HighwayNameExecutors.getCpuExecutor()).thenAcceptAsync(recursed -> {
+            if (!recursed && this.originalName != null) {
+                // Find what is left with the old name here, so the EDT only has to update the selection
+                final DataSet ds = this.wayChangingName.iterator().next().getDataSet();
+                final Collection<OsmPrimitive> remaining = getRemaining(ds, this.originalName);
+                GuiHelper.runInEDT(() -> {
+                    // Something may have been deleted in the meantime
+                    remaining.removeIf(osm -> osm.isDeleted() || osm.getDataSet() != ds);
+                    ds.setSelected(remaining);
+                    TodoHelper.addTodoItems(remaining);
+                });
             }
-            return download;
+        }, HighwayNameExecutors.getCpuExecutor()).exceptionally(throwable -> {
+            Logging.error(throwable);
+            return null;
+        });
+    }
+
+    /**
+     * Get the downloaded highways to rename, if the user asked for a recursive rename. Only the highways that
+     * continue the renamed street (through other downloaded highways with the old name) are renamed; streets elsewhere
+     * with the same name are left alone.
+     *
+     * @param primitives The downloaded primitives with one of the names
+     * @return The highways that still have the old name
+     */
+    private List<OsmPrimitive> getRecursiveHighways(Collection<OsmPrimitive> primitives) {
+        if (!Boolean.TRUE.equals(this.recursive) || this.originalName == null || primitives.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final Set<OsmPrimitive> candidates = primitives.stream()
+                .filter(p -> p.hasKey("highway") && p.hasTag("name", this.originalName)).collect(Collectors.toSet());
+        final DataSet ds = this.wayChangingName.iterator().next().getDataSet();
+        ds.getReadLock().lock();
+        try {
+            return new ArrayList<>(
+                    StreetChain.walk(this.wayChangingName, candidates::contains, StreetChain.DEPTH.get()));
+        } finally {
+            ds.getReadLock().unlock();
         }
     }
 
-    @Override
-    public void run() {
+    /**
+     * Get the highways and addresses that still have a name
+     *
+     * @param ds   The dataset to look in
+     * @param name The name to look for
+     * @return The highways with the name and the primitives with the name as {@code addr:street}
+     */
+    static Collection<OsmPrimitive> getRemaining(DataSet ds, String name) {
+        ds.getReadLock().lock();
         try {
-            CompletableFuture<Collection<OsmPrimitive>> newWays = CompletableFuture
-                    .completedFuture(Collections.emptyList());
-            if (originalName != null && downloadTask && !DownloadAdditionalWays.checkIfDownloaded(wayChangingName)) {
-                DownloadAdditionalAsk ask = new DownloadAdditionalAsk(this.recursive);
-                GuiHelper.runInEDTAndWait(ask);
-                if (ask.get()) {
-                    this.recursive = ask.recursive;
-                    newWays = DownloadAdditionalWays.getAdditionalWays(wayChangingName, originalName);
+            final StreetNameIndex index = StreetNameIndex.getIndex(ds);
+            final Collection<OsmPrimitive> remaining = new LinkedHashSet<>(index.getHighways(name));
+            remaining.addAll(index.getAddresses(name));
+            return remaining;
+        } finally {
+            ds.getReadLock().unlock();
+        }
+    }
+
+    /**
+     * Get the name for the recursive rename
+     *
+     * @return The new name of the first highway the user renamed
+     */
+    private String getRecursiveName() {
+        return this.wayChangingName.iterator().next().get("name");
+    }
+
+    /**
+     * Apply all the changes from one rename as a single undoable command, in a single dataset update. This gives
+     * one undo entry and one burst of events, instead of one for every changed address.
+     *
+     * @param commands The commands to apply
+     * @return A future that completes when the commands have been applied
+     */
+    private CompletableFuture<Void> applyCommands(List<Command> commands) {
+        if (commands.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        final Command command = new HighwayNameCommand(tr("Update addresses for renamed highways"), commands);
+        return CompletableFuture.runAsync(() -> UndoRedoHandler.getInstance().add(command), GuiHelper::runInEDT);
+    }
+
+    /**
+     * Queue a prompt to start after all previously queued prompts have finished. The calling thread is
+     * not blocked, and prompts from renames that are processed at the same time are not interleaved.
+     *
+     * @param prompt The prompt to show. It must show its dialogs on the EDT.
+     * @return A future that completes when the user has answered the prompt
+     */
+    private static synchronized <T> CompletableFuture<T> enqueuePrompt(Supplier<CompletableFuture<T>> prompt) {
+        final CompletableFuture<T> result = promptQueue.handle((ignored, throwable) -> null)
+                .thenCompose(ignored -> prompt.get());
+        promptQueue = result;
+        return result;
+    }
+
+    /**
+     * Compute the address changes for each name change. The name changes are independent, so they are computed in
+     * parallel (in the CPU pool, when called from it). The dataset is read locked, so all name changes see the
+     * same data.
+     *
+     * @param recursiveHighways The downloaded highways that will be renamed as well
+     * @param relationRenames   Filled with the commands to keep the names of street relations in sync
+     * @return The dialogs to show, in the order of the name changes
+     */
+    private List<CreateGuiAskDialog> computeDialogs(List<OsmPrimitive> recursiveHighways,
+            List<Command> relationRenames) {
+        final Map<NameChange, List<OsmPrimitive>> groups = groupByNameChange();
+        if (groups.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (!recursiveHighways.isEmpty()) {
+            // The recursive rename is made by the plugin, so the listener will not pick it up. Look for addresses
+            // near those highways together with the highways the user renamed.
+            final List<OsmPrimitive> group = groups.get(new NameChange(this.originalName, getRecursiveName()));
+            if (group != null) {
+                group.addAll(recursiveHighways);
+            }
+        }
+        final DataSet ds = groups.values().iterator().next().get(0).getDataSet();
+        ds.getReadLock().lock();
+        try {
+            // Get the index on this thread: taking the read lock again from a pool thread could block on a waiting
+            // writer while this thread holds the lock.
+            // The same goes for the corridor searches.
+            final StreetNameIndex index = StreetNameIndex.getIndex(ds);
+            final Map<NameChange, Corridor> corridors = new HashMap<>(groups.size());
+            for (Map.Entry<NameChange, List<OsmPrimitive>> entry : groups.entrySet()) {
+                corridors.put(entry.getKey(), Corridor.search(ds, entry.getValue()));
+                final List<Relation> relations = AssociatedStreets.getRelations(entry.getValue()).stream()
+                        .filter(relation -> relation.hasTag("name", entry.getKey().getOldName()))
+                        .collect(Collectors.toList());
+                if (!relations.isEmpty()) {
+                    relationRenames.add(new ChangePropertyCommand(relations, "name", entry.getKey().getNewName()));
                 }
             }
-            newWays.thenApplyAsync(ignored -> {
-                for (OsmPrimitive osm : wayChangingName) {
-                    if (originalName != null) {
-                        doRealRun(osm, originalName);
-                    } else {
-                        for (String key : osm.keySet()) {
-                            if (key.contains("name") && !"name".equals(key)) {
-                                doRealRun(osm, osm.get(key));
-                            }
-                        }
+            return groups.entrySet().parallelStream()
+                    .map(entry -> doRealRun(index, entry.getValue(), entry.getKey(), corridors.get(entry.getKey())))
+                    .filter(Objects::nonNull).collect(Collectors.toList());
+        } finally {
+            ds.getReadLock().unlock();
+        }
+    }
+
+    /**
+     * Group the ways that are changing names by their (old name, new name) pair, so that each pair is only
+     * processed once
+     *
+     * @return The ways for each name change
+     */
+    private Map<NameChange, List<OsmPrimitive>> groupByNameChange() {
+        final Map<NameChange, List<OsmPrimitive>> groups = new LinkedHashMap<>();
+        for (OsmPrimitive osm : wayChangingName) {
+            final String newName = osm.get("name");
+            if (newName == null) {
+                continue;
+            }
+            if (originalName != null) {
+                addNameChange(groups, osm, originalName, newName);
+            } else {
+                for (String key : osm.keySet()) {
+                    if (key.contains("name") && !"name".equals(key)) {
+                        addNameChange(groups, osm, osm.get(key), newName);
                     }
                 }
-                return ignored;
-            }).thenApplyAsync(primitives -> {
-                List<OsmPrimitive> toChange = primitives.stream().filter(p -> p.hasTag("name", this.originalName))
-                        .collect(Collectors.toList());
-                if (Boolean.TRUE.equals(this.recursive) && !toChange.isEmpty()) {
-                    final ChangePropertyCommand changePropertyCommand = new ChangePropertyCommand(toChange, "name",
-                            wayChangingName.iterator().next().get("name"));
-                    GuiHelper.runInEDT(() -> UndoRedoHandler.getInstance().add(changePropertyCommand));
-                } else if (this.originalName != null && (toChange.isEmpty() || !Boolean.TRUE.equals(this.recursive))) {
-                    final DataSet ds = this.wayChangingName.iterator().next().getDataSet();
-                    GuiHelper.runInEDT(() -> {
-                        try {
-                            ds.setSelected(SubclassFilteredCollection.filter(ds.allPrimitives(),
-                                    SearchCompiler.compile(this.originalName)));
-                            TodoHelper.addTodoItems();
-                        } catch (SearchParseError searchParseError) {
-                            throw new JosmRuntimeException(searchParseError);
-                        }
-                    });
-                }
-                return primitives;
-            });
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            Logging.error(e);
+            }
+        }
+        return groups;
+    }
+
+    private static void addNameChange(Map<NameChange, List<OsmPrimitive>> groups, OsmPrimitive osm, String oldName,
+            String newName) {
+        if (!oldName.equals(newName)) {
+            groups.computeIfAbsent(new NameChange(oldName, newName), k -> new ArrayList<>()).add(osm);
         }
     }
 
-    private static void doRealRun(final OsmPrimitive osm, final String name) {
-        final String newName = osm.get("name");
-        final Collection<OsmPrimitive> potentialAddrChange = osm.getDataSet()
-                .getPrimitives(t -> name.equals(t.get(ADDR_STREET)));
-        final Collection<OsmPrimitive> roads = osm.getDataSet().getPrimitives(
-                t -> (t.hasKey("highway") && (name.equals(t.get("name")) || newName.equals(t.get("name")))));
-        changeAddrTags(osm, name, potentialAddrChange, roads);
+    /**
+     * Find the addresses that should follow a name change
+     *
+     * @param index      The street name index for the dataset
+     * @param highways   The highways which changed names
+     * @param nameChange The name change
+     * @return The dialog to ask the user about the address changes, or {@code null} if there is nothing to ask
+     */
+    @Nullable
+    static CreateGuiAskDialog doRealRun(final StreetNameIndex index, final Collection<OsmPrimitive> highways,
+            final NameChange nameChange) {
+        return doRealRun(index, highways, nameChange, null);
     }
 
     /**
-     * Change the address tags of all buildings near the highway
+     * Find the addresses that should follow a name change
      *
-     * @param highway       The highway which changed names
-     * @param oldAddrStreet The old name of the highway
-     * @param primitives    The building primitives with addr:street tags
-     * @param roads         The connecting roads to the highway with the highway's
-     *                      old name
+     * @param index      The street name index for the dataset
+     * @param highways   The highways which changed names
+     * @param nameChange The name change
+     * @param corridor   The area around the highways to look in, or {@code null} to look in the whole dataset
+     * @return The dialog to ask the user about the address changes, or {@code null} if there is nothing to ask
      */
-    private static void changeAddrTags(OsmPrimitive highway, String oldAddrStreet, Collection<OsmPrimitive> primitives,
-            Collection<OsmPrimitive> roads) {
-        if (primitives == null || primitives.isEmpty()) {
-            primitives = highway.getDataSet()
-                    .getPrimitives(t -> t.hasKey(ADDR_STREET) && oldAddrStreet.equals(t.get(ADDR_STREET)));
+    @Nullable
+    static CreateGuiAskDialog doRealRun(final StreetNameIndex index, final Collection<OsmPrimitive> highways,
+            final NameChange nameChange, @Nullable final Corridor corridor) {
+        final Collection<OsmPrimitive> potentialAddrChange;
+        final Collection<OsmPrimitive> roads;
+        if (corridor == null) {
+            potentialAddrChange = index.getAddresses(nameChange.getOldName());
+            roads = new LinkedHashSet<>(index.getHighways(nameChange.getOldName()));
+            roads.addAll(index.getHighways(nameChange.getNewName()));
+        } else {
+            potentialAddrChange = corridor.getAddresses(nameChange.getOldName());
+            roads = corridor.getHighways(nameChange.getOldName(), nameChange.getNewName());
         }
-        if (roads == null || roads.isEmpty()) {
-            roads = highway.getDataSet()
-                    .getPrimitives(t -> t.hasKey("highway") && t.hasKey("name") && oldAddrStreet.equals(t.get("name")));
+        // Addresses in a street relation with the highways need no geometry
+        final Map<OsmPrimitive, OsmPrimitive> assigned = AssociatedStreets.getAddresses(highways,
+                nameChange.getOldName());
+        if (assigned.isEmpty() && (potentialAddrChange.isEmpty() || roads.isEmpty())) {
+            return null;
         }
-        CreateGuiAskDialog dialog = new CreateGuiAskDialog(highway, primitives, roads);
-        GuiHelper.runInEDTAndWait(dialog);
+        return new CreateGuiAskDialog(highways, nameChange.getNewName(), assigned, potentialAddrChange, roads);
     }
 
-    protected static class CreateGuiAskDialog implements Runnable {
-        OsmPrimitive highway;
-        Collection<OsmPrimitive> primitives;
-        Collection<OsmPrimitive> roads;
+    protected static class CreateGuiAskDialog {
+        private static final String KEY = HighwayNameModification.NAME.concat(".changeAddrStreetTags");
+        final String newAddrStreet;
+        /** The primitives to change, with the closest of the renamed highways and its closest segment */
+        final AddressCandidates candidates;
+        private final List<OsmPrimitive> toChange = new ArrayList<>();
+        private DataSet ds;
+        private Collection<OsmPrimitive> initialSelection;
+        private boolean continueZooming = true;
+        private int asked;
+
+        /**
+         * Create a new dialog. The addresses are checked in the background, starting immediately.
+         *
+         * @param highways      The highways which changed names
+         * @param newAddrStreet The new name of the highways
+         * @param primitives    The primitives with the old {@code addr:street}
+         * @param roads         The roads with the old or the new name
+         */
+        public CreateGuiAskDialog(Collection<OsmPrimitive> highways, String newAddrStreet,
+                Collection<OsmPrimitive> primitives, Collection<OsmPrimitive> roads) {
+            this(highways, newAddrStreet, Collections.emptyMap(), primitives, roads);
+        }
 
-        public CreateGuiAskDialog(OsmPrimitive highway, Collection<OsmPrimitive> primitives,
+        /**
+         * Create a new dialog. The addresses are checked in the background, starting immediately.
+         *
+         * @param highways      The highways which changed names
+         * @param newAddrStreet The new name of the highways
+         * @param assigned      The addresses from street relations, mapped to their highway. These are asked about
+         *                      first.
+         * @param primitives    The primitives with the old {@code addr:street}
+         * @param roads         The roads with the old or the new name
+         */
+        CreateGuiAskDialog(Collection<OsmPrimitive> highways, String newAddrStreet,
+                Map<OsmPrimitive, OsmPrimitive> assigned, Collection<OsmPrimitive> primitives,
                 Collection<OsmPrimitive> roads) {
-            this.highway = highway;
-            final Map<OsmPrimitive, List<OsmPrimitive>> ways = primitives.parallelStream()
-                    .collect(Collectors.groupingBy(osm -> Geometry.getClosestPrimitive(osm, roads)));
-            this.primitives = ways.getOrDefault(highway, Collections.emptyList());
-            this.roads = new HashSet<>(roads); // Make copy to avoid expensive calls in FilteredCollection
+            this.newAddrStreet = newAddrStreet;
+            this.candidates = new AddressCandidates(highways, assigned, primitives, roads,
+                    HighwayNameExecutors.getCpuExecutor());
         }
 
-        @Override
-        public void run() {
-            if (primitives.isEmpty()) {
-                return;
-            }
-            String newAddrStreet = highway.get("name");
-            final String key = HighwayNameModification.NAME.concat(".changeAddrStreetTags");
-            ConditionalOptionPaneUtil.startBulkOperation(key);
-            boolean continueZooming = true;
-            final ArrayList<OsmPrimitive> toChange = new ArrayList<>();
-            final DataSet ds = primitives.iterator().next().getDataSet();
-            final Collection<OsmPrimitive> initialSelection = ds.getSelected();
-            int i = 0;
-            for (final OsmPrimitive osm : this.primitives) {
-                i++;
-                if (!osm.hasKey(ADDR_STREET) || osm.get(ADDR_STREET).equals(newAddrStreet)) {
-                    throw new IllegalStateException("Primitive does not match expected state");
-                }
-                ds.setSelected(osm);
-                ds.clearHighlightedWaySegments();
-                final List<IPrimitive> zoomPrimitives = new ArrayList<>();
-                if (this.highway instanceof Way) {
-                    final WaySegment tWay = Geometry.getClosestWaySegment((Way) this.highway, osm);
-                    ds.setHighlightedWaySegments(Collections.singleton(tWay));
-                    zoomPrimitives.add(tWay.getFirstNode());
-                    zoomPrimitives.add(tWay.getSecondNode());
-                }
-                zoomPrimitives.add(osm);
-                if (continueZooming)
-                    AutoScaleAction.zoomTo(zoomPrimitives);
-                final int answer = ConditionalOptionPaneUtil.showOptionDialog(key, MainApplication.getMainFrame(),
-                        tr("{0}Should {1} be changed to {2}{3}", "<html><h3>", osm.get(ADDR_STREET), newAddrStreet,
-                                "</h3></html>"),
-                        tr("Highway name changed ({0}/{1})", i, primitives.size()), JOptionPane.YES_NO_CANCEL_OPTION,
-                        JOptionPane.QUESTION_MESSAGE, null, null);
-                switch (answer) {
-                case ConditionalOptionPaneUtil.DIALOG_DISABLED_OPTION:
-                case JOptionPane.YES_OPTION:
-                    if (ConditionalOptionPaneUtil.isInBulkOperation(key)
-                            && ConditionalOptionPaneUtil.getDialogReturnValue(key) >= 0) {
-                        toChange.add(osm);
-                        continueZooming = false;
-                    } else {
-                        UndoRedoHandler.getInstance().add(new ChangePropertyCommand(osm, ADDR_STREET, newAddrStreet));
+        /**
+         * Ask the user about each candidate as soon as it is available
+         *
+         * @return A future with the command for the confirmed changes (or {@code null} if there are none), which
+         * completes when the review is over. The command has not been executed.
+         */
+        CompletableFuture<Command> review() {
+            final CompletableFuture<Command> result = new CompletableFuture<>();
+            reviewWhenDone(this.candidates.next(), result);
+            return result;
+        }
+
+        /**
+         * Continue the review on the EDT once a candidate is available
+         *
+         * @param next   The future of the next candidate
+         * @param result The future to complete once the review is over
+         */
+        private void reviewWhenDone(CompletableFuture<AddressCandidates.Candidate> next,
+                CompletableFuture<Command> result) {
+            // Always a new EDT event, since GuiHelper.runInEDT would run the review inline when already on the EDT
+            next.whenComplete((candidate, throwable) -> SwingUtilities.invokeLater(() -> review(next, result)));
+        }
+
+        /**
+         * Ask about the candidates until one is not available yet. The candidates that are already available are
+         * handled in a loop, so a long review does not grow the stack.
+         *
+         * @param next   The completed future of the next candidate
+         * @param result The future to complete once the review is over
+         */
+        private void review(CompletableFuture<AddressCandidates.Candidate> next, CompletableFuture<Command> result) {
+            CompletableFuture<AddressCandidates.Candidate> current = next;
+            try {
+                for (AddressCandidates.Candidate candidate = current.join(); candidate != null;
+                        candidate = current.join()) {
+                    ask(candidate);
+                    current = this.candidates.next();
+                    if (!current.isDone()) {
+                        reviewWhenDone(current, result);
+                        return;
                     }
-                    break;
-                default:
                 }
-                ds.clearHighlightedWaySegments();
+            } catch (CompletionException e) {
+                this.candidates.cancel();
+                finish();
+                result.completeExceptionally(e.getCause() != null ? e.getCause() : e);
+                return;
             }
-            ConditionalOptionPaneUtil.endBulkOperation(key);
-            ds.setSelected(initialSelection);
-            if (toChange.isEmpty())
+            this.candidates.cancel();
+            finish();
+            result.complete(
+                    toChange.isEmpty() ? null : new ChangePropertyCommand(toChange, ADDR_STREET, newAddrStreet));
+        }
+
+        /**
+         * Check if a candidate no longer needs to be asked about
+         *
+         * @param candidate The candidate
+         * @return {@code true} if the address changed since the candidate was found
+         */
+        private boolean isStale(AddressCandidates.Candidate candidate) {
+            final OsmPrimitive osm = candidate.getAddress();
+            return !osm.hasKey(ADDR_STREET) || osm.get(ADDR_STREET).equals(newAddrStreet) || osm.getDataSet() == null;
+        }
+
+        /**
+         * Ask the user about a single candidate
+         *
+         * @param candidate The candidate
+         */
+        private void ask(AddressCandidates.Candidate candidate) {
+            final OsmPrimitive osm = candidate.getAddress();
+            if (isStale(candidate)) {
+                // Changed since the candidate was found
                 return;
-            AutoScaleAction.zoomTo(toChange);
+            }
+            if (this.ds == null) {
+                this.ds = osm.getDataSet();
+                this.initialSelection = this.ds.getSelected();
+                ConditionalOptionPaneUtil.startBulkOperation(KEY);
+            }
+            this.asked++;
+            // The closest segment was found while grouping, so no geometry work is needed here
+            final WaySegment segment = candidate.getMatch().getSegment();
+            ds.setSelected(osm);
+            ds.clearHighlightedWaySegments();
+            final List<IPrimitive> zoomPrimitives = new ArrayList<>();
+            if (segment != null) {
+                ds.setHighlightedWaySegments(Collections.singleton(segment));
+                zoomPrimitives.add(segment.getFirstNode());
+                zoomPrimitives.add(segment.getSecondNode());
+            }
+            zoomPrimitives.add(osm);
+            if (continueZooming)
+                AutoScaleAction.zoomTo(zoomPrimitives);
+            // The total is only known once all addresses have been checked. Candidates that changed since they were
+            // found are skipped, so they are not part of it.
+            final String title = this.candidates.isFinished()
+                    ? tr("Highway name changed ({0}/{1})", this.asked,
+                            this.asked + this.candidates.countReady(ready -> !isStale(ready)))
+                    : tr("Highway name changed ({0})", this.asked);
+            final int answer = ConditionalOptionPaneUtil.showOptionDialog(KEY, MainApplication.getMainFrame(),
+                    tr("{0}Should {1} be changed to {2}{3}", "<html><h3>", osm.get(ADDR_STREET), newAddrStreet,
+                            "</h3></html>"),
+                    title, JOptionPane.YES_NO_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE, null, null);
+            ds.clearHighlightedWaySegments();
+            switch (answer) {
+            case ConditionalOptionPaneUtil.DIALOG_DISABLED_OPTION:
+            case JOptionPane.YES_OPTION:
+                // The changes are applied together when the review is over
+                toChange.add(osm);
+                if (ConditionalOptionPaneUtil.isInBulkOperation(KEY)
+                        && ConditionalOptionPaneUtil.getDialogReturnValue(KEY) >= 0) {
+                    continueZooming = false;
+                }
+                break;
+            default:
+                // Anything else only skips this address
+            }
+        }
 
-            UndoRedoHandler.getInstance().add(new ChangePropertyCommand(toChange, ADDR_STREET, newAddrStreet));
+        private void finish() {
+            if (this.ds == null) {
+                return;
+            }
+            ConditionalOptionPaneUtil.endBulkOperation(KEY);
+            ds.clearHighlightedWaySegments();
+            ds.setSelected(initialSelection);
+            if (!toChange.isEmpty())
+                AutoScaleAction.zoomTo(toChange);
         }
     }
 }
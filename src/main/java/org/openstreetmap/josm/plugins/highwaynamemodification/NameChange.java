@@ -0,0 +1,69 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import java.util.Objects;
+
+import jakarta.annotation.Nonnull;
+
+/**
+ * A change from one street name to another
+ *
+ * @author Taylor Smock
+ */
+final class NameChange {
+    private final String oldName;
+    private final String newName;
+
+    /**
+     * Create a new name change
+     *
+     * @param oldName The original name
+     * @param newName The new name
+     */
+    NameChange(@Nonnull String oldName, @Nonnull String newName) {
+        this.oldName = Objects.requireNonNull(oldName);
+        this.newName = Objects.requireNonNull(newName);
+    }
+
+    /**
+     * Get the original name
+     *
+     * @return The name before the change
+     */
+    @Nonnull
+    String getOldName() {
+        return this.oldName;
+    }
+
+    /**
+     * Get the new name
+     *
+     * @return The name after the change
+     */
+    @Nonnull
+    String getNewName() {
+        return this.newName;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof NameChange) {
+            final NameChange other = (NameChange) obj;
+            return this.oldName.equals(other.oldName) && this.newName.equals(other.newName);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * this.oldName.hashCode() + this.newName.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return this.oldName + " -> " + this.newName;
+    }
+}
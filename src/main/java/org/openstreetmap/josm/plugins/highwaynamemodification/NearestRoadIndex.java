@@ -0,0 +1,417 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WaySegment;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+/**
+ * A spatial index over the segments of a set of roads, used to find the road closest to an address.
+ * <p>
+ * The segments are stored in a uniform grid in projected coordinates. Queries start at the grid cells covered by
+ * the address and expand ring by ring, stopping as soon as no unvisited cell can hold a closer segment.
+ * The distances are the same as those used by {@link org.openstreetmap.josm.tools.Geometry#getDistance}.
+ * The index is immutable once built, so it may be queried from several threads at once.
+ *
+ * @author Taylor Smock
+ */
+final class NearestRoadIndex {
+    /** The maximum number of grid cells along one axis */
+    private static final int MAX_CELLS = 1024;
+
+    /** The segment coordinates, as {@code x1, y1, x2, y2} per segment. Points are zero-length segments. */
+    private final double[] coordinates;
+    /** The road each segment belongs to */
+    private final OsmPrimitive[] owners;
+    /** The way each segment comes from, or {@code null} for points */
+    private final Way[] segmentWays;
+    /** The index of the first node of each segment in its way */
+    private final int[] segmentIndexes;
+    private final double minX;
+    private final double minY;
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+    /** The first entry in {@link #cellItems} for each cell, with one additional trailing entry */
+    private final int[] cellStart;
+    /** The segment indexes in each cell */
+    private final int[] cellItems;
+
+    /**
+     * Create a new index
+     *
+     * @param roads The roads to index
+     */
+    NearestRoadIndex(@Nonnull Collection<? extends OsmPrimitive> roads) {
+        final SegmentList segments = new SegmentList();
+        for (OsmPrimitive road : roads) {
+            segments.addGeometry(road, road, new HashSet<>());
+        }
+        this.coordinates = Arrays.copyOf(segments.coordinates, segments.size * 4);
+        this.owners = segments.owners.toArray(new OsmPrimitive[0]);
+        this.segmentWays = segments.ways.toArray(new Way[0]);
+        this.segmentIndexes = Arrays.copyOf(segments.indexes, segments.size);
+        final int count = this.owners.length;
+
+        double tMinX = Double.POSITIVE_INFINITY;
+        double tMinY = Double.POSITIVE_INFINITY;
+        double tMaxX = Double.NEGATIVE_INFINITY;
+        double tMaxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count * 4; i += 2) {
+            tMinX = Math.min(tMinX, this.coordinates[i]);
+            tMaxX = Math.max(tMaxX, this.coordinates[i]);
+            tMinY = Math.min(tMinY, this.coordinates[i + 1]);
+            tMaxY = Math.max(tMaxY, this.coordinates[i + 1]);
+        }
+        if (count == 0) {
+            tMinX = tMinY = tMaxX = tMaxY = 0;
+        }
+        final double width = Math.max(tMaxX - tMinX, 1e-6);
+        final double height = Math.max(tMaxY - tMinY, 1e-6);
+        // Aim for roughly one segment per cell
+        final double targetSize = Math.sqrt(width * height / Math.max(count, 1));
+        this.columns = clamp((int) Math.ceil(width / targetSize));
+        this.rows = clamp((int) Math.ceil(height / targetSize));
+        this.minX = tMinX;
+        this.minY = tMinY;
+        this.cellSize = Math.max(width / this.columns, height / this.rows);
+
+        // Bucket the segments (counting sort), registering each segment in every cell its bounding box covers
+        this.cellStart = new int[this.columns * this.rows + 1];
+        for (int i = 0; i < count; i++) {
+            forEachCell(i, cell -> this.cellStart[cell + 1]++);
+        }
+        for (int i = 0; i < this.columns * this.rows; i++) {
+            this.cellStart[i + 1] += this.cellStart[i];
+        }
+        this.cellItems = new int[this.cellStart[this.cellStart.length - 1]];
+        final int[] fill = Arrays.copyOf(this.cellStart, this.cellStart.length - 1);
+        for (int i = 0; i < count; i++) {
+            final int segment = i;
+            forEachCell(i, cell -> this.cellItems[fill[cell]++] = segment);
+        }
+    }
+
+    /**
+     * Get the road closest to a primitive
+     *
+     * @param primitive The primitive to find the closest road for
+     * @return The closest road, or {@code null} if there are no roads or the primitive has no usable geometry
+     */
+    @Nullable
+    OsmPrimitive getNearestRoad(@Nonnull OsmPrimitive primitive) {
+        final Search search = search(primitive, null);
+        return search == null || search.nearest < 0 ? null : this.owners[search.nearest];
+    }
+
+    /**
+     * Check if a highway is the road closest to a primitive. Ties count as closest.
+     *
+     * @param primitive The primitive (usually an address)
+     * @param highway   The highway to check
+     * @return {@code true} if no indexed road is closer to the primitive than the highway
+     */
+    boolean isNearest(@Nonnull OsmPrimitive primitive, @Nonnull OsmPrimitive highway) {
+        return getNearestOf(primitive, Collections.singleton(highway)) != null;
+    }
+
+    /**
+     * Get the highway from a set that is the road closest to a primitive. Ties count as closest.
+     *
+     * @param primitive The primitive (usually an address)
+     * @param highways  The highways to check
+     * @return The closest highway from the set, or {@code null} if some other road is closer to the primitive
+     */
+    @Nullable
+    OsmPrimitive getNearestOf(@Nonnull OsmPrimitive primitive, @Nonnull Set<? extends OsmPrimitive> highways) {
+        final Match match = getNearestMatchOf(primitive, highways);
+        return match == null ? null : match.getRoad();
+    }
+
+    /**
+     * Get the highway from a set that is the road closest to a primitive, along with its closest segment.
+     * Ties count as closest.
+     *
+     * @param primitive The primitive (usually an address)
+     * @param highways  The highways to check
+     * @return The closest highway from the set, or {@code null} if some other road is closer to the primitive
+     */
+    @Nullable
+    Match getNearestMatchOf(@Nonnull OsmPrimitive primitive, @Nonnull Set<? extends OsmPrimitive> highways) {
+        final Search search = search(primitive, highways);
+        if (search != null && search.nearestTarget >= 0 && search.nearestTargetDistance <= search.nearestDistance) {
+            final int segment = search.nearestTarget;
+            final Way way = this.segmentWays[segment];
+            return new Match(this.owners[segment], way == null ? null : new WaySegment(way,
+                    this.segmentIndexes[segment]), search.nearestTargetDistance);
+        }
+        return null;
+    }
+
+    private Search search(OsmPrimitive primitive, Set<? extends OsmPrimitive> targets) {
+        if (this.owners.length == 0) {
+            return null;
+        }
+        final SegmentList query = new SegmentList();
+        query.addGeometry(primitive, primitive, new HashSet<>());
+        if (query.size == 0) {
+            return null;
+        }
+        double qMinX = Double.POSITIVE_INFINITY;
+        double qMinY = Double.POSITIVE_INFINITY;
+        double qMaxX = Double.NEGATIVE_INFINITY;
+        double qMaxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < query.size * 4; i += 2) {
+            qMinX = Math.min(qMinX, query.coordinates[i]);
+            qMaxX = Math.max(qMaxX, query.coordinates[i]);
+            qMinY = Math.min(qMinY, query.coordinates[i + 1]);
+            qMaxY = Math.max(qMaxY, query.coordinates[i + 1]);
+        }
+        final int x0 = column(qMinX);
+        final int x1 = column(qMaxX);
+        final int y0 = row(qMinY);
+        final int y1 = row(qMaxY);
+        final int maxRing = Math.max(this.columns, this.rows);
+        final Search search = new Search();
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (int y = y0 - ring; y <= y1 + ring; y++) {
+                if (y < 0 || y >= this.rows) {
+                    continue;
+                }
+                final boolean edgeRow = ring == 0 || y == y0 - ring || y == y1 + ring;
+                final int step = edgeRow ? 1 : Math.max(1, x1 - x0 + 2 * ring);
+                for (int x = x0 - ring; x <= x1 + ring; x += step) {
+                    if (x >= 0 && x < this.columns) {
+                        searchCell(y * this.columns + x, query, targets, search);
+                    }
+                }
+            }
+            // Everything not yet visited is at least ring * cellSize away
+            final double bound = ring * this.cellSize;
+            if (search.nearest >= 0 && search.nearestDistance <= bound * bound) {
+                break;
+            }
+        }
+        return search;
+    }
+
+    private void searchCell(int cell, SegmentList query, Set<? extends OsmPrimitive> targets, Search search) {
+        for (int i = this.cellStart[cell]; i < this.cellStart[cell + 1]; i++) {
+            final int segment = this.cellItems[i];
+            final int offset = segment * 4;
+            double distance = Double.POSITIVE_INFINITY;
+            for (int j = 0; j < query.size * 4 && distance > 0; j += 4) {
+                distance = Math.min(distance,
+                        segmentDistanceSq(this.coordinates[offset], this.coordinates[offset + 1],
+                                this.coordinates[offset + 2], this.coordinates[offset + 3], query.coordinates[j],
+                                query.coordinates[j + 1], query.coordinates[j + 2], query.coordinates[j + 3]));
+            }
+            if (distance < search.nearestDistance) {
+                search.nearestDistance = distance;
+                search.nearest = segment;
+            }
+            if (targets != null && distance < search.nearestTargetDistance && targets.contains(this.owners[segment])) {
+                search.nearestTargetDistance = distance;
+                search.nearestTarget = segment;
+            }
+        }
+    }
+
+    private void forEachCell(int segment, IntConsumer consumer) {
+        final int offset = segment * 4;
+        final int cx0 = column(Math.min(this.coordinates[offset], this.coordinates[offset + 2]));
+        final int cx1 = column(Math.max(this.coordinates[offset], this.coordinates[offset + 2]));
+        final int cy0 = row(Math.min(this.coordinates[offset + 1], this.coordinates[offset + 3]));
+        final int cy1 = row(Math.max(this.coordinates[offset + 1], this.coordinates[offset + 3]));
+        for (int y = cy0; y <= cy1; y++) {
+            for (int x = cx0; x <= cx1; x++) {
+                consumer.accept(y * this.columns + x);
+            }
+        }
+    }
+
+    private int column(double x) {
+        return Math.max(0, Math.min(this.columns - 1, (int) Math.floor((x - this.minX) / this.cellSize)));
+    }
+
+    private int row(double y) {
+        return Math.max(0, Math.min(this.rows - 1, (int) Math.floor((y - this.minY) / this.cellSize)));
+    }
+
+    private static int clamp(int cells) {
+        return Math.max(1, Math.min(MAX_CELLS, cells));
+    }
+
+    /**
+     * Get the squared distance between two segments
+     */
+    private static double segmentDistanceSq(double ax1, double ay1, double ax2, double ay2, double bx1, double by1,
+            double bx2, double by2) {
+        if (segmentsIntersect(ax1, ay1, ax2, ay2, bx1, by1, bx2, by2)) {
+            return 0;
+        }
+        return Math.min(Math.min(pointDistanceSq(bx1, by1, ax1, ay1, ax2, ay2), pointDistanceSq(bx2, by2, ax1, ay1,
+                ax2, ay2)),
+                Math.min(pointDistanceSq(ax1, ay1, bx1, by1, bx2, by2), pointDistanceSq(ax2, ay2, bx1, by1, bx2, by2)));
+    }
+
+    /**
+     * Get the squared distance between a point and a segment
+     */
+    private static double pointDistanceSq(double px, double py, double x1, double y1, double x2, double y2) {
+        final double dx = x2 - x1;
+        final double dy = y2 - y1;
+        final double lengthSq = dx * dx + dy * dy;
+        double t = 0;
+        if (lengthSq > 0) {
+            t = Math.max(0, Math.min(1, ((px - x1) * dx + (py - y1) * dy) / lengthSq));
+        }
+        final double ex = x1 + t * dx - px;
+        final double ey = y1 + t * dy - py;
+        return ex * ex + ey * ey;
+    }
+
+    private static boolean segmentsIntersect(double ax1, double ay1, double ax2, double ay2, double bx1, double by1,
+            double bx2, double by2) {
+        final double d1 = cross(bx1, by1, bx2, by2, ax1, ay1);
+        final double d2 = cross(bx1, by1, bx2, by2, ax2, ay2);
+        final double d3 = cross(ax1, ay1, ax2, ay2, bx1, by1);
+        final double d4 = cross(ax1, ay1, ax2, ay2, bx2, by2);
+        // Collinear and touching cases are handled by the point distances being 0
+        return ((d1 > 0 && d2 < 0) || (d1 < 0 && d2 > 0)) && ((d3 > 0 && d4 < 0) || (d3 < 0 && d4 > 0));
+    }
+
+    private static double cross(double x1, double y1, double x2, double y2, double px, double py) {
+        return (x2 - x1) * (py - y1) - (y2 - y1) * (px - x1);
+    }
+
+    /**
+     * A road that is closest to a primitive
+     */
+    static final class Match {
+        private final OsmPrimitive road;
+        private final WaySegment segment;
+        private final double distanceSq;
+
+        Match(@Nonnull OsmPrimitive road, @Nullable WaySegment segment, double distanceSq) {
+            this.road = road;
+            this.segment = segment;
+            this.distanceSq = distanceSq;
+        }
+
+        /**
+         * Get the road
+         *
+         * @return The closest road
+         */
+        @Nonnull
+        OsmPrimitive getRoad() {
+            return this.road;
+        }
+
+        /**
+         * Get the closest segment of the road. For relations, this is a segment of one of the member ways.
+         *
+         * @return The closest segment, or {@code null} if the closest part of the road is a node
+         */
+        @Nullable
+        WaySegment getSegment() {
+            return this.segment;
+        }
+
+        /**
+         * Get the distance to the road
+         *
+         * @return The squared distance to the road, in projected units
+         */
+        double getDistanceSq() {
+            return this.distanceSq;
+        }
+    }
+
+    /**
+     * The state of a single query
+     */
+    private static final class Search {
+        int nearest = -1;
+        double nearestDistance = Double.POSITIVE_INFINITY;
+        int nearestTarget = -1;
+        double nearestTargetDistance = Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * A growable list of projected segments
+     */
+    private static final class SegmentList {
+        double[] coordinates = new double[64];
+        int[] indexes = new int[16];
+        final List<OsmPrimitive> owners = new ArrayList<>();
+        final List<Way> ways = new ArrayList<>();
+        int size;
+
+        void addGeometry(OsmPrimitive owner, OsmPrimitive primitive, Set<OsmPrimitive> visited) {
+            if (primitive == null || primitive.isIncomplete() || !visited.add(primitive)) {
+                return;
+            }
+            if (primitive instanceof Node) {
+                final EastNorth point = eastNorth((Node) primitive);
+                if (point != null) {
+                    add(owner, null, 0, point, point);
+                }
+            } else if (primitive instanceof Way) {
+                final Way way = (Way) primitive;
+                final List<Node> nodes = way.getNodes();
+                EastNorth previous = nodes.size() == 1 ? eastNorth(nodes.get(0)) : null;
+                if (previous != null) {
+                    add(owner, null, 0, previous, previous);
+                }
+                for (int i = 1; i < nodes.size(); i++) {
+                    previous = eastNorth(nodes.get(i - 1));
+                    final EastNorth current = eastNorth(nodes.get(i));
+                    if (previous != null && current != null) {
+                        add(owner, way, i - 1, previous, current);
+                    }
+                }
+            } else if (primitive instanceof Relation) {
+                for (OsmPrimitive member : ((Relation) primitive).getMemberPrimitivesList()) {
+                    addGeometry(owner, member, visited);
+                }
+            }
+        }
+
+        private void add(OsmPrimitive owner, Way way, int index, EastNorth first, EastNorth second) {
+            if (this.coordinates.length < (this.size + 1) * 4) {
+                this.coordinates = Arrays.copyOf(this.coordinates, this.coordinates.length * 2);
+                this.indexes = Arrays.copyOf(this.indexes, this.coordinates.length / 4);
+            }
+            this.indexes[this.size] = index;
+            this.ways.add(way);
+            final int offset = this.size * 4;
+            this.coordinates[offset] = first.east();
+            this.coordinates[offset + 1] = first.north();
+            this.coordinates[offset + 2] = second.east();
+            this.coordinates[offset + 3] = second.north();
+            this.owners.add(owner);
+            this.size++;
+        }
+
+        private static EastNorth eastNorth(Node node) {
+            return node.isLatLonKnown() ? node.getEastNorth() : null;
+        }
+    }
+}
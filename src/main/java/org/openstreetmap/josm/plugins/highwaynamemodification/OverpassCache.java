@@ -0,0 +1,401 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.tools.JosmRuntimeException;
+import org.openstreetmap.josm.tools.Logging;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+/**
+ * An on-disk cache of Overpass results, so that repeated sessions over the same area do not need to hit the
+ * network (or parse XML) again.
+ * <p>
+ * Entries are keyed by the query (which holds the names) and the area. They are stored in a compact binary form,
+ * and are evicted when they are older than {@link #TTL} hours or when the cache grows larger than
+ * {@link #MAX_SIZE} megabytes (oldest first).
+ *
+ * @author Taylor Smock
+ */
+final class OverpassCache {
+    /** The maximum age of a cache entry in hours. {@code 0} disables the cache. */
+    static final IntegerProperty TTL = new IntegerProperty("highwaynamemodification.cache.ttl", 24);
+    /** The maximum size of the cache in megabytes */
+    static final IntegerProperty MAX_SIZE = new IntegerProperty("highwaynamemodification.cache.size", 64);
+
+    private static final int MAGIC = 0x484e4d43; // HNMC
+    private static final int FORMAT_VERSION = 1;
+    private static final String EXTENSION = ".bin";
+
+    private static OverpassCache instance;
+
+    private final File directory;
+
+    /**
+     * Create a new cache
+     *
+     * @param directory The directory to store the cache entries in
+     */
+    OverpassCache(@Nonnull File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Get the cache in the JOSM cache directory
+     *
+     * @return The default cache
+     */
+    @Nonnull
+    static synchronized OverpassCache getInstance() {
+        if (instance == null) {
+            instance = new OverpassCache(new File(Config.getDirs().getCacheDirectory(true),
+                    "highwaynamemodification" + File.separator + "overpass"));
+        }
+        return instance;
+    }
+
+    /**
+     * Get a cached result
+     *
+     * @param query  The Overpass query
+     * @param bounds The area of the query
+     * @return The cached data, or {@code null} if there is no (current) cache entry
+     */
+    @Nullable
+    DataSet get(@Nonnull String query, @Nonnull Bounds bounds) {
+        final File file = getFile(query, bounds);
+        if (TTL.get() <= 0 || !file.isFile()) {
+            return null;
+        }
+        if (isExpired(file)) {
+            delete(file);
+            return null;
+        }
+        try (InputStream inputStream = new InflaterInputStream(
+                new BufferedInputStream(Files.newInputStream(file.toPath())));
+                DataInputStream input = new DataInputStream(inputStream)) {
+            return read(input);
+        } catch (IOException | RuntimeException e) {
+            Logging.warn("Could not read cached Overpass data from {0}", file);
+            Logging.debug(e);
+            delete(file);
+            return null;
+        }
+    }
+
+    /**
+     * Store a result
+     *
+     * @param query   The Overpass query
+     * @param bounds  The area of the query
+     * @param dataSet The data returned by the query
+     */
+    void put(@Nonnull String query, @Nonnull Bounds bounds, @Nonnull DataSet dataSet) {
+        if (TTL.get() <= 0 || (!this.directory.isDirectory() && !this.directory.mkdirs())) {
+            return;
+        }
+        final File file = getFile(query, bounds);
+        // Several downloads of the same tile may be stored at once, so each writes to its own file
+        final File temporary;
+        try {
+            temporary = File.createTempFile(file.getName(), ".tmp", this.directory);
+        } catch (IOException e) {
+            Logging.warn("Could not cache Overpass data in {0}", file);
+            Logging.debug(e);
+            return;
+        }
+        try {
+            try (OutputStream outputStream = new DeflaterOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporary.toPath())));
+                    DataOutputStream output = new DataOutputStream(outputStream)) {
+                dataSet.getReadLock().lock();
+                try {
+                    write(output, dataSet);
+                } finally {
+                    dataSet.getReadLock().unlock();
+                }
+            }
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Logging.warn("Could not cache Overpass data in {0}", file);
+            Logging.debug(e);
+            delete(temporary);
+        }
+        evict();
+    }
+
+    /**
+     * Remove expired entries, and then the oldest entries until the cache fits in {@link #MAX_SIZE}
+     */
+    synchronized void evict() {
+        final File[] files = this.directory.listFiles((dir, name) -> name.endsWith(EXTENSION));
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
+        final long maxSize = MAX_SIZE.get() * 1024L * 1024L;
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+            if (size > maxSize || isExpired(file)) {
+                delete(file);
+            }
+        }
+    }
+
+    private File getFile(String query, Bounds bounds) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(query.getBytes(StandardCharsets.UTF_8));
+            digest.update(bounds.encodeAsString(",").getBytes(StandardCharsets.UTF_8));
+            final StringBuilder name = new StringBuilder(64 + EXTENSION.length());
+            for (byte b : digest.digest()) {
+                name.append(String.format("%02x", b));
+            }
+            return new File(this.directory, name.append(EXTENSION).toString());
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM must support SHA-256
+            throw new JosmRuntimeException(e);
+        }
+    }
+
+    private static boolean isExpired(File file) {
+        return System.currentTimeMillis() - file.lastModified() > TimeUnit.HOURS.toMillis(TTL.get());
+    }
+
+    private static void delete(File file) {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            Logging.debug(e);
+        }
+    }
+
+    /**
+     * Write a dataset in the cache format
+     *
+     * @param output  The stream to write to
+     * @param dataSet The dataset to write
+     * @throws IOException If the stream could not be written to
+     */
+    static void write(@Nonnull DataOutputStream output, @Nonnull DataSet dataSet) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeByte(FORMAT_VERSION);
+        final Collection<DataSource> dataSources = dataSet.getDataSources();
+        output.writeInt(dataSources.size());
+        for (DataSource dataSource : dataSources) {
+            output.writeDouble(dataSource.bounds.getMinLat());
+            output.writeDouble(dataSource.bounds.getMinLon());
+            output.writeDouble(dataSource.bounds.getMaxLat());
+            output.writeDouble(dataSource.bounds.getMaxLon());
+            output.writeUTF(dataSource.origin == null ? "" : dataSource.origin);
+        }
+        final List<Node> nodes = complete(dataSet.getNodes());
+        output.writeInt(nodes.size());
+        for (Node node : nodes) {
+            writeCommon(output, node);
+            output.writeDouble(node.lat());
+            output.writeDouble(node.lon());
+        }
+        final List<Way> ways = complete(dataSet.getWays());
+        output.writeInt(ways.size());
+        for (Way way : ways) {
+            writeCommon(output, way);
+            output.writeInt(way.getNodesCount());
+            for (Node node : way.getNodes()) {
+                output.writeLong(node.getUniqueId());
+            }
+        }
+        final List<Relation> relations = complete(dataSet.getRelations());
+        output.writeInt(relations.size());
+        for (Relation relation : relations) {
+            writeCommon(output, relation);
+            output.writeInt(relation.getMembersCount());
+            for (RelationMember member : relation.getMembers()) {
+                output.writeByte(member.getType().ordinal());
+                output.writeLong(member.getUniqueId());
+                output.writeUTF(member.getRole());
+            }
+        }
+    }
+
+    /**
+     * Read a dataset in the cache format
+     *
+     * @param input The stream to read from
+     * @return The dataset
+     * @throws IOException If the stream could not be read or is not in the cache format
+     */
+    @Nonnull
+    static DataSet read(@Nonnull DataInputStream input) throws IOException {
+        if (input.readInt() != MAGIC || input.readByte() != FORMAT_VERSION) {
+            throw new IOException("Not a cache file");
+        }
+        final DataSet dataSet = new DataSet();
+        final int dataSourceCount = input.readInt();
+        for (int i = 0; i < dataSourceCount; i++) {
+            final Bounds bounds = new Bounds(input.readDouble(), input.readDouble(), input.readDouble(),
+                    input.readDouble());
+            dataSet.addDataSource(new DataSource(bounds, input.readUTF()));
+        }
+        final Map<Long, Node> nodes = new HashMap<>();
+        final int nodeCount = input.readInt();
+        for (int i = 0; i < nodeCount; i++) {
+            final Node node = new Node(input.readLong(), input.readInt());
+            readCommon(input, node);
+            node.setCoor(new LatLon(input.readDouble(), input.readDouble()));
+            nodes.put(node.getUniqueId(), node);
+            dataSet.addPrimitive(node);
+        }
+        final int wayCount = input.readInt();
+        for (int i = 0; i < wayCount; i++) {
+            final Way way = new Way(input.readLong(), input.readInt());
+            readCommon(input, way);
+            final int wayNodeCount = input.readInt();
+            final List<Node> wayNodes = new ArrayList<>(wayNodeCount);
+            for (int j = 0; j < wayNodeCount; j++) {
+                final long id = input.readLong();
+                wayNodes.add(nodes.computeIfAbsent(id, nodeId -> {
+                    final Node incomplete = new Node(nodeId);
+                    dataSet.addPrimitive(incomplete);
+                    return incomplete;
+                }));
+            }
+            way.setNodes(wayNodes);
+            dataSet.addPrimitive(way);
+        }
+        // Relations may refer to relations later in the stream, so add them all before setting members
+        final int relationCount = input.readInt();
+        final Map<Relation, List<MemberData>> relationMembers = new HashMap<>(relationCount);
+        for (int i = 0; i < relationCount; i++) {
+            final Relation relation = new Relation(input.readLong(), input.readInt());
+            readCommon(input, relation);
+            final int memberCount = input.readInt();
+            final List<MemberData> members = new ArrayList<>(memberCount);
+            for (int j = 0; j < memberCount; j++) {
+                members.add(new MemberData(OsmPrimitiveType.values()[input.readByte()], input.readLong(),
+                        input.readUTF()));
+            }
+            relationMembers.put(relation, members);
+            dataSet.addPrimitive(relation);
+        }
+        for (Map.Entry<Relation, List<MemberData>> entry : relationMembers.entrySet()) {
+            final List<RelationMember> members = new ArrayList<>(entry.getValue().size());
+            for (MemberData member : entry.getValue()) {
+                OsmPrimitive primitive = dataSet.getPrimitiveById(member.id, member.type);
+                if (primitive == null) {
+                    primitive = member.createIncomplete();
+                    dataSet.addPrimitive(primitive);
+                }
+                members.add(new RelationMember(member.role, primitive));
+            }
+            entry.getKey().setMembers(members);
+        }
+        return dataSet;
+    }
+
+    private static <T extends OsmPrimitive> List<T> complete(Collection<T> primitives) {
+        final List<T> complete = new ArrayList<>(primitives.size());
+        for (T primitive : primitives) {
+            if (!primitive.isIncomplete() && !primitive.isNew()) {
+                complete.add(primitive);
+            }
+        }
+        return complete;
+    }
+
+    private static void writeCommon(DataOutputStream output, OsmPrimitive primitive) throws IOException {
+        output.writeLong(primitive.getUniqueId());
+        output.writeInt(primitive.getVersion());
+        output.writeInt(primitive.getChangesetId());
+        output.writeInt(primitive.getRawTimestamp());
+        output.writeBoolean(primitive.isVisible());
+        final User user = primitive.getUser();
+        output.writeLong(user == null ? 0 : user.getId());
+        output.writeUTF(user == null || user.getName() == null ? "" : user.getName());
+        final Map<String, String> keys = primitive.getKeys();
+        output.writeInt(keys.size());
+        for (Map.Entry<String, String> tag : keys.entrySet()) {
+            output.writeUTF(tag.getKey());
+            output.writeUTF(tag.getValue());
+        }
+    }
+
+    private static void readCommon(DataInputStream input, OsmPrimitive primitive) throws IOException {
+        primitive.setChangesetId(input.readInt());
+        primitive.setRawTimestamp(input.readInt());
+        primitive.setVisible(input.readBoolean());
+        final long userId = input.readLong();
+        final String userName = input.readUTF();
+        if (userId != 0 || !userName.isEmpty()) {
+            primitive.setUser(User.createOsmUser(userId, userName));
+        }
+        final int tagCount = input.readInt();
+        final Map<String, String> keys = new HashMap<>(tagCount);
+        for (int i = 0; i < tagCount; i++) {
+            keys.put(input.readUTF(), input.readUTF());
+        }
+        primitive.setKeys(keys);
+    }
+
+    /**
+     * A relation member that has been read, but not yet resolved
+     */
+    private static final class MemberData {
+        final OsmPrimitiveType type;
+        final long id;
+        final String role;
+
+        MemberData(OsmPrimitiveType type, long id, String role) {
+            this.type = type;
+            this.id = id;
+            this.role = role;
+        }
+
+        OsmPrimitive createIncomplete() {
+            if (this.type == OsmPrimitiveType.NODE) {
+                return new Node(this.id);
+            } else if (this.type == OsmPrimitiveType.WAY) {
+                return new Way(this.id);
+            }
+            return new Relation(this.id);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.TreeSet;
+
+import jakarta.annotation.Nonnull;
+
+/**
+ * Build the Overpass query for primitives with a name or {@code addr:street} that matches one of several names.
+ * <p>
+ * All names go into a single regex alternation, so the query has one name clause and one {@code addr:street}
+ * clause per element type, no matter how many names there are. The names are sorted, so the same set of names
+ * always produces the same query.
+ *
+ * @author Taylor Smock
+ */
+final class OverpassQueryBuilder {
+    /** The characters with a special meaning in Overpass (POSIX extended) regexes */
+    private static final String REGEX_SPECIAL_CHARACTERS = "\\^$.|?*+()[]{}";
+    private static final String[] ELEMENT_TYPES = {"node", "way", "relation"};
+
+    /**
+     * The output modes for the query
+     */
+    enum OutputMode {
+        /** Everything, including the metadata needed to edit and upload the data */
+        META("meta"),
+        /** Geometry and tags, but no metadata */
+        BODY("body"),
+        /** Geometry only */
+        SKEL("skel"),
+        /** Tags only */
+        TAGS("tags");
+
+        private final String mode;
+
+        OutputMode(String mode) {
+            this.mode = mode;
+        }
+    }
+
+    private final Collection<String> names = new TreeSet<>();
+    private int timeout = 15;
+    private OutputMode outputMode = OutputMode.META;
+
+    /**
+     * Add names to look for
+     *
+     * @param names The names
+     * @return this, for easy chaining
+     */
+    OverpassQueryBuilder names(@Nonnull Collection<String> names) {
+        this.names.addAll(names);
+        return this;
+    }
+
+    /**
+     * Set the server timeout
+     *
+     * @param timeout The timeout in seconds
+     * @return this, for easy chaining
+     */
+    OverpassQueryBuilder timeout(int timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * Set the output mode. Data that will be merged into an editable layer needs {@link OutputMode#META}.
+     *
+     * @param outputMode The output mode
+     * @return this, for easy chaining
+     */
+    OverpassQueryBuilder outputMode(@Nonnull OutputMode outputMode) {
+        this.outputMode = outputMode;
+        return this;
+    }
+
+    /**
+     * Build the query
+     *
+     * @return The query, with a {@code {{bbox}}} placeholder for the area
+     * @throws IllegalStateException if no names have been added
+     */
+    @Nonnull
+    String build() {
+        if (this.names.isEmpty()) {
+            throw new IllegalStateException("No names to query for");
+        }
+        final StringBuilder regex = new StringBuilder("^(");
+        for (Iterator<String> iterator = this.names.iterator(); iterator.hasNext();) {
+            regex.append(escapeRegex(iterator.next()));
+            if (iterator.hasNext()) {
+                regex.append('|');
+            }
+        }
+        final String pattern = escapeString(regex.append(")$").toString());
+        final StringBuilder query = new StringBuilder(128 + 6 * pattern.length());
+        query.append("[out:xml][timeout:").append(this.timeout).append("][bbox:{{bbox}}];(");
+        // TODO if Overpass ever allows wildcard keys without wildcard values, replace the name key regex.
+        for (String type : ELEMENT_TYPES) {
+            query.append(type).append("[~\"name\"~\"").append(pattern).append("\"];");
+        }
+        for (String type : ELEMENT_TYPES) {
+            query.append(type).append("[\"addr:street\"~\"").append(pattern).append("\"];");
+        }
+        return query.append(");(._;<;);(._;>;);out ").append(this.outputMode.mode).append(';').toString();
+    }
+
+    /**
+     * Escape a string so that it only matches itself in a regex
+     *
+     * @param string The string to escape
+     * @return The escaped string
+     */
+    static String escapeRegex(@Nonnull String string) {
+        final StringBuilder escaped = new StringBuilder(string.length() + 8);
+        for (int i = 0; i < string.length(); i++) {
+            final char c = string.charAt(i);
+            if (REGEX_SPECIAL_CHARACTERS.indexOf(c) >= 0) {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * Escape a string for use in a double quoted Overpass string literal
+     *
+     * @param string The string to escape
+     * @return The escaped string
+     */
+    static String escapeString(@Nonnull String string) {
+        return string.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
@@ -0,0 +1,143 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+/**
+ * The Overpass requests that are in progress or have completed, per dataset and name.
+ * <p>
+ * A request for a name in an area is covered by any pending or completed request for the same name whose area
+ * contains it. Covered requests attach to the existing request instead of downloading the same data again.
+ * Completed requests only remember the ids of the primitives they found, so they do not keep a closed layer alive.
+ *
+ * @author Taylor Smock
+ */
+final class OverpassRequestRegistry {
+    private final Map<DataSet, ConcurrentMap<String, List<Request>>> requests = Collections
+            .synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Claim a request for a name in an area.
+     * <p>
+     * If the caller owns the request, it must complete {@code download} with the merged primitives, or with
+     * {@code null} if nothing could be downloaded. Failed requests are forgotten, so that they can be retried.
+     *
+     * @param dataSet  The dataset the download is merged into
+     * @param name     The name to download
+     * @param area     The area to download
+     * @param download The download that will be started if the claim succeeds
+     * @return {@code null} if the caller now owns the request, otherwise the result of the request that covers it
+     */
+    @Nullable
+    CompletableFuture<Collection<OsmPrimitive>> claim(@Nonnull DataSet dataSet, @Nonnull String name,
+            @Nonnull Bounds area, @Nonnull CompletableFuture<Collection<OsmPrimitive>> download) {
+        final ConcurrentMap<String, List<Request>> dataSetRequests = this.requests.computeIfAbsent(dataSet,
+                ignored -> new ConcurrentHashMap<>());
+        final BBox bbox = area.toBBox();
+        final Request[] covering = new Request[1];
+        final Request request = new Request(bbox, download);
+        dataSetRequests.compute(name, (key, list) -> {
+            final List<Request> nameRequests = list == null ? new ArrayList<>() : list;
+            for (Request existing : nameRequests) {
+                if (existing.area.bounds(bbox)) {
+                    covering[0] = existing;
+                    return nameRequests;
+                }
+            }
+            nameRequests.add(request);
+            return nameRequests;
+        });
+        if (covering[0] != null) {
+            return covering[0].getResult(dataSet);
+        }
+        download.whenComplete((result, throwable) -> {
+            if (throwable != null || result == null) {
+                dataSetRequests.computeIfPresent(name, (key, list) -> {
+                    list.remove(request);
+                    return list.isEmpty() ? null : list;
+                });
+            } else {
+                request.complete(result, name);
+            }
+        });
+        return null;
+    }
+
+    /**
+     * Get the number of requests for a name, pending or completed
+     *
+     * @param dataSet The dataset the requests were merged into
+     * @param name    The name
+     * @return The number of requests
+     */
+    int size(@Nonnull DataSet dataSet, @Nonnull String name) {
+        final ConcurrentMap<String, List<Request>> dataSetRequests = this.requests.get(dataSet);
+        final int[] size = new int[1];
+        if (dataSetRequests != null) {
+            dataSetRequests.computeIfPresent(name, (key, list) -> {
+                size[0] = list.size();
+                return list;
+            });
+        }
+        return size[0];
+    }
+
+    /**
+     * A single request
+     */
+    private static final class Request {
+        private final BBox area;
+        /** The download while it is in progress, {@code null} once it has completed */
+        private volatile CompletableFuture<Collection<OsmPrimitive>> pending;
+        private volatile List<PrimitiveId> found;
+
+        Request(BBox area, CompletableFuture<Collection<OsmPrimitive>> pending) {
+            this.area = area;
+            this.pending = pending;
+        }
+
+        void complete(Collection<OsmPrimitive> result, String name) {
+            final List<PrimitiveId> ids = new ArrayList<>();
+            for (OsmPrimitive primitive : result) {
+                if (name.equals(primitive.get("name"))) {
+                    ids.add(primitive.getPrimitiveId());
+                }
+            }
+            this.found = ids;
+            // The result references the dataset, so drop it
+            this.pending = null;
+        }
+
+        CompletableFuture<Collection<OsmPrimitive>> getResult(DataSet dataSet) {
+            final CompletableFuture<Collection<OsmPrimitive>> download = this.pending;
+            if (download != null) {
+                return download;
+            }
+            final List<OsmPrimitive> primitives = new ArrayList<>(this.found.size());
+            for (PrimitiveId id : this.found) {
+                final OsmPrimitive primitive = dataSet.getPrimitiveById(id);
+                if (primitive != null && !primitive.isDeleted()) {
+                    primitives.add(primitive);
+                }
+            }
+            return CompletableFuture.completedFuture(primitives);
+        }
+    }
+}
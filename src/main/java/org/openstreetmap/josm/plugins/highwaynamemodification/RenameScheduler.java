@@ -0,0 +1,151 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.gui.MainApplication;
+
+import jakarta.annotation.Nonnull;
+
+/**
+ * Coalesce highway renames before they are processed.
+ * <p>
+ * Renames are held until no new rename has been seen for the quiet window. For each primitive, only the name it
+ * had before the first pending rename is kept; the new name is read when the renames are processed. Intermediate
+ * names (e.g. from typing a name one character at a time) are therefore never processed, and a rename that ends
+ * up back at the original name is dropped.
+ *
+ * @author Taylor Smock
+ */
+final class RenameScheduler {
+    /** The time in milliseconds to wait for further renames. {@code 0} processes renames immediately. */
+    static final IntegerProperty QUIET_WINDOW = new IntegerProperty("highwaynamemodification.rename.quietwindow",
+            500);
+
+    /** The pending renames, mapped to the name the primitive had before the first pending rename */
+    private final Map<OsmPrimitive, String> pending = new LinkedHashMap<>();
+    /** Processes the renamed primitives of a dataset that had the same old name */
+    private final BiConsumer<String, List<OsmPrimitive>> processor;
+    private ScheduledExecutorService timer;
+    private ScheduledFuture<?> scheduledFlush;
+
+    /**
+     * Create a new scheduler that processes renames with {@link ModifyWays}
+     */
+    RenameScheduler() {
+        this((oldName, primitives) -> MainApplication.worker
+                .execute(new ModifyWays(primitives, oldName, false, true, null)));
+    }
+
+    /**
+     * Create a new scheduler
+     *
+     * @param processor Called with the old name and the renamed primitives of each group of renames
+     */
+    RenameScheduler(@Nonnull BiConsumer<String, List<OsmPrimitive>> processor) {
+        this.processor = processor;
+    }
+
+    /**
+     * Schedule a rename
+     *
+     * @param oldName    The name before the rename
+     * @param primitives The primitives that were renamed
+     */
+    void schedule(@Nonnull String oldName, @Nonnull Collection<? extends OsmPrimitive> primitives) {
+        final int quietWindow = QUIET_WINDOW.get();
+        synchronized (this) {
+            for (OsmPrimitive primitive : primitives) {
+                this.pending.putIfAbsent(primitive, oldName);
+            }
+            if (quietWindow > 0) {
+                if (this.scheduledFlush != null) {
+                    this.scheduledFlush.cancel(false);
+                }
+                if (this.timer == null) {
+                    this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                        final Thread thread = new Thread(runnable, "highwaynamemodification-rename-scheduler");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+                this.scheduledFlush = this.timer.schedule(this::flush, quietWindow, TimeUnit.MILLISECONDS);
+                return;
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Process all pending renames now
+     */
+    void flush() {
+        final Map<OsmPrimitive, String> toProcess;
+        synchronized (this) {
+            toProcess = new LinkedHashMap<>(this.pending);
+            this.pending.clear();
+            this.scheduledFlush = null;
+        }
+        final Map<DataSet, Map<OsmPrimitive, String>> byDataSet = new LinkedHashMap<>();
+        for (Map.Entry<OsmPrimitive, String> entry : toProcess.entrySet()) {
+            final DataSet dataSet = entry.getKey().getDataSet();
+            if (dataSet != null) {
+                byDataSet.computeIfAbsent(dataSet, ds -> new LinkedHashMap<>()).put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (Map.Entry<DataSet, Map<OsmPrimitive, String>> dataSetRenames : byDataSet.entrySet()) {
+            final Map<String, List<OsmPrimitive>> groups = new LinkedHashMap<>();
+            // This runs on the timer thread, so the tags must not change while they are read
+            final DataSet dataSet = dataSetRenames.getKey();
+            dataSet.getReadLock().lock();
+            try {
+                for (Map.Entry<OsmPrimitive, String> entry : dataSetRenames.getValue().entrySet()) {
+                    final OsmPrimitive primitive = entry.getKey();
+                    final String currentName = primitive.get("name");
+                    if (!primitive.isDeleted() && primitive.hasKey("highway") && currentName != null
+                            && !currentName.equals(entry.getValue())) {
+                        groups.computeIfAbsent(entry.getValue(), name -> new ArrayList<>()).add(primitive);
+                    }
+                }
+            } finally {
+                dataSet.getReadLock().unlock();
+            }
+            for (Map.Entry<String, List<OsmPrimitive>> group : groups.entrySet()) {
+                this.processor.accept(group.getKey(), group.getValue());
+            }
+        }
+    }
+
+    /**
+     * Get the number of primitives with a pending rename
+     *
+     * @return The number of pending renames
+     */
+    synchronized int size() {
+        return this.pending.size();
+    }
+
+    /**
+     * Drop any pending renames and stop the timer thread
+     */
+    synchronized void shutdown() {
+        this.pending.clear();
+        if (this.timer != null) {
+            this.timer.shutdownNow();
+            this.timer = null;
+        }
+        this.scheduledFlush = null;
+    }
+}
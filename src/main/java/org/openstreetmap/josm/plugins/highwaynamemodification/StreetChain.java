@@ -0,0 +1,70 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+
+import jakarta.annotation.Nonnull;
+
+/**
+ * Find the ways that continue a street, by following shared nodes.
+ * <p>
+ * This only looks at the ways connected to the start, so the work depends on the size of the street, and streets
+ * elsewhere that happen to have the same name are left alone.
+ *
+ * @author Taylor Smock
+ */
+final class StreetChain {
+    /** The maximum number of ways between a renamed way and a way that is renamed with it */
+    static final IntegerProperty DEPTH = new IntegerProperty("highwaynamemodification.recursive.depth", 100);
+
+    private StreetChain() {
+        // Hide constructor
+    }
+
+    /**
+     * Walk from ways to the connected ways. The caller should hold the read lock of the dataset.
+     *
+     * @param start  The ways to start at
+     * @param follow The ways to walk along
+     * @param depth  The maximum number of ways to walk away from the start
+     * @return The connected ways that match {@code follow}, closest first. The start ways are not included.
+     */
+    @Nonnull
+    static List<Way> walk(@Nonnull Collection<? extends OsmPrimitive> start, @Nonnull Predicate<Way> follow,
+            int depth) {
+        final Set<Way> visited = new HashSet<>();
+        List<Way> current = new ArrayList<>();
+        for (OsmPrimitive primitive : start) {
+            if (primitive instanceof Way && visited.add((Way) primitive)) {
+                current.add((Way) primitive);
+            }
+        }
+        final List<Way> found = new ArrayList<>();
+        for (int level = 0; level < depth && !current.isEmpty(); level++) {
+            final List<Way> next = new ArrayList<>();
+            for (Way way : current) {
+                for (Node node : way.getNodes()) {
+                    for (Way parent : node.getParentWays()) {
+                        if (!parent.isDeleted() && !visited.contains(parent) && follow.test(parent)) {
+                            visited.add(parent);
+                            next.add(parent);
+                        }
+                    }
+                }
+            }
+            found.addAll(next);
+            current = next;
+        }
+        return found;
+    }
+}
@@ -0,0 +1,219 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+/**
+ * An inverted index of street names for a {@link DataSet}. Each name maps to the primitives with a matching
+ * {@code addr:street} tag and to the highways with a matching {@code name} tag.
+ * <p>
+ * The index is built lazily on first use and is then kept current by the {@link HighwayNameListener}. The listener
+ * drops the index when its layer is removed or stops being the edit layer, since it only hears about changes to the
+ * edit dataset, and since the indexed primitives would otherwise keep the dataset alive.
+ *
+ * @author Taylor Smock
+ */
+final class StreetNameIndex {
+    private static final Map<DataSet, StreetNameIndex> INDEXES = new HashMap<>();
+
+    private final Map<String, Set<OsmPrimitive>> addresses = new HashMap<>();
+    private final Map<String, Set<OsmPrimitive>> highways = new HashMap<>();
+
+    /**
+     * Create a new index for a dataset
+     *
+     * @param dataSet The dataset to index
+     */
+    StreetNameIndex(@Nonnull DataSet dataSet) {
+        dataSet.getReadLock().lock();
+        try {
+            build(dataSet);
+        } finally {
+            dataSet.getReadLock().unlock();
+        }
+    }
+
+    private StreetNameIndex() {
+        // Used by getIndex, which builds the index itself
+    }
+
+    /**
+     * Get the index for a dataset, building it if necessary
+     *
+     * @param dataSet The dataset to get the index for
+     * @return The index
+     */
+    @Nonnull
+    static StreetNameIndex getIndex(@Nonnull DataSet dataSet) {
+        StreetNameIndex index = getExistingIndex(dataSet);
+        if (index != null) {
+            return index;
+        }
+        // Publish while holding the read lock, so that no change can happen between building and publishing.
+        // This is the same lock order as the listener callbacks (dataset lock, then index lock).
+        dataSet.getReadLock().lock();
+        try {
+            synchronized (INDEXES) {
+                index = INDEXES.get(dataSet);
+            }
+            if (index == null) {
+                final StreetNameIndex newIndex = new StreetNameIndex();
+                newIndex.build(dataSet);
+                synchronized (INDEXES) {
+                    index = INDEXES.computeIfAbsent(dataSet, ds -> newIndex);
+                }
+            }
+            return index;
+        } finally {
+            dataSet.getReadLock().unlock();
+        }
+    }
+
+    /**
+     * Get the index for a dataset, if it has already been built
+     *
+     * @param dataSet The dataset to get the index for
+     * @return The index, or {@code null} if there is no index for the dataset yet
+     */
+    @Nullable
+    static StreetNameIndex getExistingIndex(@Nullable DataSet dataSet) {
+        if (dataSet == null) {
+            return null;
+        }
+        synchronized (INDEXES) {
+            return INDEXES.get(dataSet);
+        }
+    }
+
+    /**
+     * Drop the index for a dataset. It will be rebuilt when next needed.
+     *
+     * @param dataSet The dataset to drop the index for
+     */
+    static void invalidate(@Nonnull DataSet dataSet) {
+        synchronized (INDEXES) {
+            INDEXES.remove(dataSet);
+        }
+    }
+
+    /**
+     * Drop all indexes. They will be rebuilt when next needed.
+     */
+    static void invalidateAll() {
+        synchronized (INDEXES) {
+            INDEXES.clear();
+        }
+    }
+
+    /**
+     * Get the primitives with an {@code addr:street} tag equal to a name
+     *
+     * @param name The street name
+     * @return A copy of the matching primitives
+     */
+    @Nonnull
+    synchronized Collection<OsmPrimitive> getAddresses(@Nonnull String name) {
+        return copy(this.addresses.get(name));
+    }
+
+    /**
+     * Get the highways with a {@code name} tag equal to a name
+     *
+     * @param name The street name
+     * @return A copy of the matching highways
+     */
+    @Nonnull
+    synchronized Collection<OsmPrimitive> getHighways(@Nonnull String name) {
+        return copy(this.highways.get(name));
+    }
+
+    /**
+     * Add primitives to the index
+     *
+     * @param primitives The primitives that were added to the dataset
+     */
+    synchronized void primitivesAdded(@Nonnull Collection<? extends OsmPrimitive> primitives) {
+        for (OsmPrimitive primitive : primitives) {
+            add(primitive, primitive.getKeys());
+        }
+    }
+
+    /**
+     * Remove primitives from the index
+     *
+     * @param primitives The primitives that were removed from the dataset
+     */
+    synchronized void primitivesRemoved(@Nonnull Collection<? extends OsmPrimitive> primitives) {
+        for (OsmPrimitive primitive : primitives) {
+            remove(primitive, primitive.getKeys());
+        }
+    }
+
+    /**
+     * Update the index for a primitive whose tags changed
+     *
+     * @param primitive    The primitive whose tags changed
+     * @param originalKeys The tags of the primitive before the change
+     */
+    synchronized void tagsChanged(@Nonnull OsmPrimitive primitive, @Nonnull Map<String, String> originalKeys) {
+        remove(primitive, originalKeys);
+        if (!primitive.isDeleted()) {
+            add(primitive, primitive.getKeys());
+        }
+    }
+
+    private synchronized void build(DataSet dataSet) {
+        for (OsmPrimitive primitive : dataSet.allPrimitives()) {
+            if (!primitive.isDeleted()) {
+                add(primitive, primitive.getKeys());
+            }
+        }
+    }
+
+    private void add(OsmPrimitive primitive, Map<String, String> keys) {
+        final String addrStreet = keys.get(ModifyWays.ADDR_STREET);
+        if (addrStreet != null) {
+            this.addresses.computeIfAbsent(addrStreet, k -> new LinkedHashSet<>()).add(primitive);
+        }
+        final String name = keys.get("name");
+        if (name != null && keys.containsKey("highway")) {
+            this.highways.computeIfAbsent(name, k -> new LinkedHashSet<>()).add(primitive);
+        }
+    }
+
+    private void remove(OsmPrimitive primitive, Map<String, String> keys) {
+        remove(this.addresses, keys.get(ModifyWays.ADDR_STREET), primitive);
+        if (keys.containsKey("highway")) {
+            remove(this.highways, keys.get("name"), primitive);
+        }
+    }
+
+    private static void remove(Map<String, Set<OsmPrimitive>> map, String name, OsmPrimitive primitive) {
+        if (name == null) {
+            return;
+        }
+        final Set<OsmPrimitive> set = map.get(name);
+        if (set != null && set.remove(primitive) && set.isEmpty()) {
+            map.remove(name);
+        }
+    }
+
+    private static Collection<OsmPrimitive> copy(Set<OsmPrimitive> set) {
+        if (set == null || set.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(set);
+    }
+}
@@ -0,0 +1,187 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.openstreetmap.josm.data.Preferences;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.preferences.JosmBaseDirectories;
+import org.openstreetmap.josm.data.preferences.JosmUrls;
+import org.openstreetmap.josm.data.projection.ProjectionRegistry;
+import org.openstreetmap.josm.data.projection.Projections;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.io.Compression;
+import org.openstreetmap.josm.io.IllegalDataException;
+import org.openstreetmap.josm.io.OsmPbfReader;
+import org.openstreetmap.josm.io.OsmReader;
+import org.openstreetmap.josm.io.OsmWriter;
+import org.openstreetmap.josm.io.OsmWriterFactory;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.OptionParser;
+
+/**
+ * Rename streets in an OSM file from the command line.
+ * <p>
+ * Usage: {@code java -cp josm.jar:highwaynamemodification.jar
+ * org.openstreetmap.josm.plugins.highwaynamemodification.StreetRenameCli --input in.osm.pbf --renames renames.tsv
+ * --output out.osm [--report report.tsv]}
+ * <p>
+ * The renames file has one rename per line, with the old and the new name separated by a tab. Empty lines and
+ * lines starting with {@code #} are ignored. The report has one line per rename with the old name, the new name,
+ * the number of renamed highways, the number of changed addresses and the number of addresses that were left
+ * alone since they are closer to another street.
+ *
+ * @author Taylor Smock
+ */
+public final class StreetRenameCli {
+    private File input;
+    private File renames;
+    private File output;
+    private File report;
+
+    private StreetRenameCli() {
+        // Only created by main
+    }
+
+    /**
+     * Run the command line interface
+     *
+     * @param args The arguments
+     */
+    public static void main(String[] args) {
+        final StreetRenameCli cli = new StreetRenameCli();
+        final OptionParser parser = new OptionParser(StreetRenameCli.class.getSimpleName());
+        parser.addArgumentParameter("input", OptionParser.OptionCount.REQUIRED, arg -> cli.input = new File(arg));
+        parser.addShortAlias("input", "i");
+        parser.addArgumentParameter("renames", OptionParser.OptionCount.REQUIRED,
+                arg -> cli.renames = new File(arg));
+        parser.addShortAlias("renames", "r");
+        parser.addArgumentParameter("output", OptionParser.OptionCount.REQUIRED, arg -> cli.output = new File(arg));
+        parser.addShortAlias("output", "o");
+        parser.addArgumentParameter("report", OptionParser.OptionCount.OPTIONAL, arg -> cli.report = new File(arg));
+        parser.parseOptionsOrExit(Arrays.asList(args));
+        try {
+            cli.run();
+        } catch (IOException | IllegalDataException e) {
+            Logging.error(e);
+            System.exit(1);
+        }
+    }
+
+    private void run() throws IOException, IllegalDataException {
+        setUp();
+        final Map<String, String> renameMap = readRenames(this.renames);
+        final DataSet dataSet = readDataSet(this.input);
+
+        final long start = System.nanoTime();
+        final List<StreetRenameEngine.RenameResult> results = new StreetRenameEngine(dataSet).rename(renameMap);
+        final long elapsed = System.nanoTime() - start;
+
+        writeDataSet(dataSet, this.output);
+        if (this.report != null) {
+            try (PrintStream reportStream = new PrintStream(Files.newOutputStream(this.report.toPath()), false,
+                    StandardCharsets.UTF_8.name())) {
+                writeReport(results, reportStream);
+            }
+        } else {
+            writeReport(results, System.out);
+        }
+        Logging.info(String.format(Locale.ROOT, "Applied %d renames in %.1f ms (%.0f renames/s)", results.size(),
+                elapsed / 1e6, results.size() / Math.max(elapsed / 1e9, 1e-9)));
+    }
+
+    /**
+     * Set up the parts of JOSM that are needed without a GUI
+     */
+    private static void setUp() {
+        final Preferences preferences = Preferences.main();
+        preferences.enableSaveOnPut(false);
+        Config.setPreferencesInstance(preferences);
+        Config.setBaseDirectoriesProvider(JosmBaseDirectories.getInstance());
+        Config.setUrlsProvider(JosmUrls.getInstance());
+        // The projection is only used for distances, so it does not need to come from the user preferences
+        ProjectionRegistry.setProjection(Projections.getProjectionByCode("EPSG:3857"));
+    }
+
+    /**
+     * Read a renames file
+     *
+     * @param file The file with one {@code old<TAB>new} rename per line
+     * @return The renames, in file order
+     * @throws IOException If the file could not be read or has a malformed line
+     */
+    static Map<String, String> readRenames(File file) throws IOException {
+        final Map<String, String> renameMap = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                final String[] names = line.split("\t", -1);
+                if (names.length != 2 || names[0].trim().isEmpty() || names[1].trim().isEmpty()) {
+                    throw new IOException(file + ":" + lineNumber + ": expected <old name><TAB><new name>");
+                }
+                final String previous = renameMap.put(names[0].trim(), names[1].trim());
+                if (previous != null) {
+                    Logging.warn("{0}:{1}: {2} was already renamed to {3}", file, lineNumber, names[0].trim(),
+                            previous);
+                }
+            }
+        }
+        return renameMap;
+    }
+
+    private static DataSet readDataSet(File file) throws IOException, IllegalDataException {
+        try (InputStream inputStream = Compression.getUncompressedFileInputStream(file)) {
+            if (file.getName().endsWith(".pbf")) {
+                return OsmPbfReader.parseDataSet(inputStream, NullProgressMonitor.INSTANCE);
+            }
+            return OsmReader.parseDataSet(inputStream, NullProgressMonitor.INSTANCE);
+        }
+    }
+
+    private static void writeDataSet(DataSet dataSet, File file) throws IOException {
+        if (file.getName().endsWith(".pbf")) {
+            throw new IOException("Writing PBF files is not supported: " + file);
+        }
+        try (OutputStream outputStream = Compression.getCompressedFileOutputStream(file);
+                OsmWriter writer = OsmWriterFactory.createOsmWriter(
+                        new PrintWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)), false,
+                        dataSet.getVersion())) {
+            writer.write(dataSet);
+        }
+    }
+
+    /**
+     * Write the change report
+     *
+     * @param results The rename results
+     * @param stream  The stream to write to
+     */
+    static void writeReport(List<StreetRenameEngine.RenameResult> results, PrintStream stream) {
+        stream.println("# old name\tnew name\thighways\taddresses\tskipped addresses");
+        for (StreetRenameEngine.RenameResult result : results) {
+            stream.println(result.getOldName() + '\t' + result.getNewName() + '\t' + result.getHighways().size()
+                    + '\t' + result.getAddresses().size() + '\t' + result.getSkippedAddresses());
+        }
+        stream.flush();
+    }
+}
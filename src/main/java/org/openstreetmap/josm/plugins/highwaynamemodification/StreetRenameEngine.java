@@ -0,0 +1,196 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+
+import jakarta.annotation.Nonnull;
+
+/**
+ * Apply a list of street renames to a dataset without any user interaction.
+ * <p>
+ * All renames are planned against the dataset as it was before any of them was applied, so a list with both
+ * {@code A → B} and {@code B → C} renames the streets that were originally called {@code A} to {@code B}, and the
+ * streets that were originally called {@code B} to {@code C}. An address follows a rename if the renamed highways
+ * are at least as close to it as any other highway with the old or the new name, just like the interactive rename.
+ *
+ * @author Taylor Smock
+ */
+public final class StreetRenameEngine {
+    private final DataSet dataSet;
+
+    /**
+     * Create a new engine
+     *
+     * @param dataSet The dataset to rename streets in
+     */
+    public StreetRenameEngine(@Nonnull DataSet dataSet) {
+        this.dataSet = dataSet;
+    }
+
+    /**
+     * Plan and apply renames
+     *
+     * @param renames The renames, mapping old names to new names
+     * @return The result for each rename, in the iteration order of {@code renames}
+     */
+    @Nonnull
+    public List<RenameResult> rename(@Nonnull Map<String, String> renames) {
+        final List<RenameResult> results;
+        this.dataSet.getReadLock().lock();
+        try {
+            final StreetNameIndex index = new StreetNameIndex(this.dataSet);
+            results = renames.entrySet().parallelStream()
+                    .filter(rename -> !rename.getKey().equals(rename.getValue()))
+                    .map(rename -> plan(index, new NameChange(rename.getKey(), rename.getValue())))
+                    .collect(Collectors.toList());
+        } finally {
+            this.dataSet.getReadLock().unlock();
+        }
+        this.dataSet.beginUpdate();
+        try {
+            for (RenameResult result : results) {
+                result.apply();
+            }
+        } finally {
+            this.dataSet.endUpdate();
+        }
+        return results;
+    }
+
+    private static RenameResult plan(StreetNameIndex index, NameChange nameChange) {
+        final Collection<OsmPrimitive> highways = index.getHighways(nameChange.getOldName());
+        final Collection<OsmPrimitive> addresses = index.getAddresses(nameChange.getOldName());
+        final Map<OsmPrimitive, NearestRoadIndex.Match> changes;
+        if (highways.isEmpty() || addresses.isEmpty()) {
+            changes = Collections.emptyMap();
+        } else {
+            final Collection<OsmPrimitive> roads = new LinkedHashSet<>(highways);
+            roads.addAll(index.getHighways(nameChange.getNewName()));
+            changes = assignAddresses(highways, addresses, roads);
+        }
+        return new RenameResult(nameChange, highways, changes, addresses.size() - changes.size());
+    }
+
+    /**
+     * Find the addresses that are closest to one of the renamed highways
+     *
+     * @param highways  The highways which changed names
+     * @param addresses The primitives with the old {@code addr:street}
+     * @param roads     The roads with the old or the new name
+     * @return The addresses that should change, mapped to the closest of the renamed highways and its closest segment
+     */
+    @Nonnull
+    static Map<OsmPrimitive, NearestRoadIndex.Match> assignAddresses(@Nonnull Collection<OsmPrimitive> highways,
+            @Nonnull Collection<OsmPrimitive> addresses, @Nonnull Collection<OsmPrimitive> roads) {
+        final NearestRoadIndex roadIndex = new NearestRoadIndex(roads);
+        final Set<OsmPrimitive> highwaySet = new HashSet<>(highways);
+        final List<NearestRoadIndex.Match> nearest = addresses.parallelStream()
+                .map(osm -> roadIndex.getNearestMatchOf(osm, highwaySet)).collect(Collectors.toList());
+        final Map<OsmPrimitive, NearestRoadIndex.Match> assigned = new LinkedHashMap<>();
+        final Iterator<OsmPrimitive> addressIterator = addresses.iterator();
+        for (NearestRoadIndex.Match match : nearest) {
+            final OsmPrimitive osm = addressIterator.next();
+            if (match != null) {
+                assigned.put(osm, match);
+            }
+        }
+        return assigned;
+    }
+
+    /**
+     * The result of a single rename
+     */
+    public static final class RenameResult {
+        private final NameChange nameChange;
+        private final Collection<OsmPrimitive> highways;
+        private final Map<OsmPrimitive, NearestRoadIndex.Match> addresses;
+        private final int skippedAddresses;
+
+        RenameResult(NameChange nameChange, Collection<OsmPrimitive> highways,
+                Map<OsmPrimitive, NearestRoadIndex.Match> addresses, int skippedAddresses) {
+            this.nameChange = nameChange;
+            this.highways = highways;
+            this.addresses = addresses;
+            this.skippedAddresses = skippedAddresses;
+        }
+
+        private void apply() {
+            for (OsmPrimitive highway : this.highways) {
+                highway.put("name", this.nameChange.getNewName());
+                highway.setModified(true);
+            }
+            for (OsmPrimitive address : this.addresses.keySet()) {
+                address.put(ModifyWays.ADDR_STREET, this.nameChange.getNewName());
+                address.setModified(true);
+            }
+        }
+
+        /**
+         * Get the old name
+         *
+         * @return The name before the rename
+         */
+        @Nonnull
+        public String getOldName() {
+            return this.nameChange.getOldName();
+        }
+
+        /**
+         * Get the new name
+         *
+         * @return The name after the rename
+         */
+        @Nonnull
+        public String getNewName() {
+            return this.nameChange.getNewName();
+        }
+
+        /**
+         * Get the renamed highways
+         *
+         * @return The highways that were renamed
+         */
+        @Nonnull
+        public Collection<OsmPrimitive> getHighways() {
+            return Collections.unmodifiableCollection(this.highways);
+        }
+
+        /**
+         * Get the changed addresses
+         *
+         * @return The primitives whose {@code addr:street} was changed
+         */
+        @Nonnull
+        public Collection<OsmPrimitive> getAddresses() {
+            return Collections.unmodifiableCollection(this.addresses.keySet());
+        }
+
+        /**
+         * Get the number of addresses with the old name that were left alone, since they are closer to another
+         * street with the old or the new name
+         *
+         * @return The number of addresses that were not changed
+         */
+        public int getSkippedAddresses() {
+            return this.skippedAddresses;
+        }
+
+        @Override
+        public String toString() {
+            return "RenameResult [" + this.nameChange + ", highways=" + this.highways.size() + ", addresses="
+                    + this.addresses.size() + ", skipped=" + this.skippedAddresses + ']';
+        }
+    }
+}
@@ -2,10 +2,13 @@
 package org.openstreetmap.josm.plugins.highwaynamemodification;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Collection;
 
 import javax.swing.AbstractListModel;
 
 import org.openstreetmap.josm.actions.JosmAction;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.dialogs.ToggleDialog;
 import org.openstreetmap.josm.plugins.PluginException;
@@ -20,10 +23,13 @@ public final class TodoHelper {
     private static final Class<? extends ToggleDialog> CLASS;
     private static final Field ACT_ADD;
     private static final Field MODEL;
+    /** The bulk add method of the todo list model, if the installed todo plugin has one */
+    private static final Method ADD_ITEMS;
     static {
         Class<? extends ToggleDialog> clazz = null;
         Field actAdd = null;
         Field model = null;
+        Method addItems = null;
         try {
             final PluginInformation info = PluginInformation.findPlugin("todo");
             if (info != null) {
@@ -32,17 +38,36 @@ public final class TodoHelper {
                 actAdd = clazz.getDeclaredField("actAdd");
                 model = clazz.getDeclaredField("model");
                 ReflectionUtils.setObjectsAccessible(actAdd, model);
+                addItems = getAddItems(model.getType());
             }
         } catch (ClassNotFoundException | PluginException | NoSuchFieldException classNotFoundException) {
             Logging.trace(classNotFoundException);
         }
         ACT_ADD = actAdd;
         MODEL = model;
+        ADD_ITEMS = addItems;
         CLASS = clazz;
     }
 
-    public static void addTodoItems() {
-        if (CLASS == null || MODEL == null || ACT_ADD == null) {
+    private static Method getAddItems(Class<?> modelClass) {
+        try {
+            final Method addItems = modelClass.getMethod("addItems", Collection.class);
+            ReflectionUtils.setObjectsAccessible(addItems);
+            return addItems;
+        } catch (NoSuchMethodException noSuchMethodException) {
+            Logging.trace(noSuchMethodException);
+            return null;
+        }
+    }
+
+    /**
+     * Add primitives to an empty todo list. This must be called on the EDT.
+     *
+     * @param primitives The primitives to add. Older versions of the todo plugin can only add the selection, so
+     *                   these should be selected.
+     */
+    public static void addTodoItems(Collection<? extends OsmPrimitive> primitives) {
+        if (CLASS == null || MODEL == null || ACT_ADD == null || primitives.isEmpty()) {
             return;
         }
         final ToggleDialog todoDialog = MainApplication.getMap().getToggleDialog(CLASS);
@@ -52,6 +77,11 @@ public final class TodoHelper {
         try {
             AbstractListModel<?> m = (AbstractListModel<?>) MODEL.get(todoDialog);
             if (m != null && m.getSize() == 0) {
+                if (ADD_ITEMS != null) {
+                    // All items in one go
+                    ADD_ITEMS.invoke(m, primitives);
+                    return;
+                }
                 JosmAction a = (JosmAction) ACT_ADD.get(todoDialog);
                 if (a != null) {
                     a.actionPerformed(null);
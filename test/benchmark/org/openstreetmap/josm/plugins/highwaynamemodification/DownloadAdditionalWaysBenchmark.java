@@ -0,0 +1,71 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+
+/**
+ * Benchmarks for merging downloaded data into the edit layer. The target dataset is recreated for every invocation,
+ * which is only reasonable because a merge takes far longer than the setup overhead.
+ *
+ * @author Taylor Smock
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DownloadAdditionalWaysBenchmark {
+    @Param({"100", "1000"})
+    int roads;
+    @Param({"10"})
+    int segments;
+    @Param({"0.5", "4"})
+    double addressDensity;
+    /** {@code true} if the downloaded data is already in the target dataset */
+    @Param({"false", "true"})
+    boolean overlap;
+
+    private DataSet download;
+    private DataSet target;
+    private Collection<String> names;
+
+    @Setup
+    public void setUp() {
+        SyntheticDataSets.setUpHeadless();
+        this.download = SyntheticDataSets.generate(this.roads, this.segments, this.addressDensity);
+        this.names = Collections.singleton(SyntheticDataSets.getName(0));
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpTarget() {
+        this.target = this.overlap ? new DataSet(this.download) : new DataSet();
+    }
+
+    /**
+     * Merge a downloaded tile
+     *
+     * @return The merged primitives with the name, so that the work is not optimized away
+     */
+    @Benchmark
+    public Collection<OsmPrimitive> mergeData() {
+        return DownloadAdditionalWays.mergeData(this.target, this.download, this.names);
+    }
+}
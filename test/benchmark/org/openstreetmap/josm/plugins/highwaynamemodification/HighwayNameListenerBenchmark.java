@@ -0,0 +1,83 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+
+/**
+ * Benchmarks for the listener handling a large batch of tag changes (e.g. from the validator fixing many names).
+ * The quiet window is set high enough that the renames are never processed, so only the listener itself is measured.
+ *
+ * @author Taylor Smock
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HighwayNameListenerBenchmark {
+    @Param({"100", "1000", "10000"})
+    int roads;
+    @Param({"10"})
+    int segments;
+    @Param({"0.5"})
+    double addressDensity;
+
+    private DataChangedEvent event;
+    private HighwayNameListener listener;
+
+    @Setup
+    public void setUp() {
+        SyntheticDataSets.setUpHeadless();
+        RenameScheduler.QUIET_WINDOW.put(Integer.MAX_VALUE);
+        final DataSet dataSet = SyntheticDataSets.generate(this.roads, this.segments, this.addressDensity);
+        final List<AbstractDatasetChangedEvent> events = new ArrayList<>();
+        for (OsmPrimitive highway : SyntheticDataSets.getHighways(dataSet)) {
+            final String oldName = highway.get("name");
+            highway.put("name", oldName + " Renamed");
+            events.add(new TagsChangedEvent(dataSet, highway, Collections.singletonMap("name", oldName)));
+        }
+        StreetNameIndex.getIndex(dataSet);
+        this.event = new DataChangedEvent(dataSet, events);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpListener() {
+        this.listener = new HighwayNameListener();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDownListener() {
+        this.listener.destroy();
+    }
+
+    /**
+     * Group and schedule a batch of renames
+     */
+    @Benchmark
+    public void dataChanged() {
+        this.listener.dataChanged(this.event);
+    }
+}
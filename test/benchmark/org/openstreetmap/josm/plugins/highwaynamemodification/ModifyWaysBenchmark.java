@@ -0,0 +1,111 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+
+/**
+ * Benchmarks for finding and assigning the addresses that follow a highway rename
+ *
+ * @author Taylor Smock
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModifyWaysBenchmark {
+    @Param({"100", "1000"})
+    int roads;
+    @Param({"10", "50"})
+    int segments;
+    @Param({"0.5", "4"})
+    double addressDensity;
+
+    private DataSet dataSet;
+    private Collection<OsmPrimitive> highways;
+    private Collection<OsmPrimitive> addresses;
+    private Collection<OsmPrimitive> allRoads;
+    private NameChange nameChange;
+    private StreetNameIndex index;
+
+    @Setup
+    public void setUp() {
+        SyntheticDataSets.setUpHeadless();
+        this.dataSet = SyntheticDataSets.generate(this.roads, this.segments, this.addressDensity);
+        final String name = SyntheticDataSets.getName(0);
+        this.highways = SyntheticDataSets.getHighways(this.dataSet, name);
+        this.addresses = SyntheticDataSets.getAddresses(this.dataSet);
+        this.allRoads = SyntheticDataSets.getHighways(this.dataSet);
+        this.nameChange = new NameChange(name, "Renamed Road");
+        this.index = StreetNameIndex.getIndex(this.dataSet);
+    }
+
+    /**
+     * The lookup and assignment for a single rename, with a warm street name index
+     *
+     * @return The number of candidates, so that the work is not optimized away
+     */
+    @Benchmark
+    public int doRealRun() {
+        final ModifyWays.CreateGuiAskDialog dialog = ModifyWays.doRealRun(this.index, this.highways,
+                this.nameChange);
+        int count = 0;
+        while (dialog != null && dialog.candidates.next().join() != null) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * The time until the first address can be shown to the user
+     *
+     * @return The first candidate, so that the work is not optimized away
+     */
+    @Benchmark
+    public Object timeToFirstCandidate() {
+        final ModifyWays.CreateGuiAskDialog dialog = ModifyWays.doRealRun(this.index, this.highways,
+                this.nameChange);
+        if (dialog == null) {
+            return null;
+        }
+        final Object candidate = dialog.candidates.next().join();
+        dialog.candidates.cancel();
+        return candidate;
+    }
+
+    /**
+     * Assign every address in the dataset to its nearest road
+     *
+     * @return The assignment, so that the work is not optimized away
+     */
+    @Benchmark
+    public Object nearestRoadGrouping() {
+        return StreetRenameEngine.assignAddresses(this.highways, this.addresses, this.allRoads);
+    }
+
+    /**
+     * Build the street name index from scratch
+     *
+     * @return The index, so that the work is not optimized away
+     */
+    @Benchmark
+    public Object buildStreetNameIndex() {
+        return new StreetNameIndex(this.dataSet);
+    }
+}
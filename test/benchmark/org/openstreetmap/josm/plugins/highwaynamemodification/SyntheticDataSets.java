@@ -0,0 +1,141 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.openstreetmap.josm.data.Preferences;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.preferences.JosmBaseDirectories;
+import org.openstreetmap.josm.data.preferences.JosmUrls;
+import org.openstreetmap.josm.data.projection.ProjectionRegistry;
+import org.openstreetmap.josm.data.projection.Projections;
+import org.openstreetmap.josm.spi.preferences.Config;
+
+/**
+ * Generate synthetic datasets for the benchmarks. The data is generated from a fixed seed, so runs are comparable.
+ * <p>
+ * Roads are laid out as horizontal ways in a grid. Four consecutive ways share a name ({@code Road 0},
+ * {@code Road 1}, ...), like a street that was split at intersections. Addresses are nodes placed near a random
+ * road, tagged with the name of that road. All primitives have positive ids, like downloaded data.
+ *
+ * @author Taylor Smock
+ */
+final class SyntheticDataSets {
+    /** The number of ways that share a name */
+    static final int WAYS_PER_NAME = 4;
+    private static final double SEGMENT_LENGTH = 0.0005;
+    private static final double ROAD_SPACING = 0.002;
+    private static final double ORIGIN_LAT = 39.05;
+    private static final double ORIGIN_LON = -108.6;
+
+    private SyntheticDataSets() {
+        // Hide the constructor
+    }
+
+    /**
+     * Set up the bare minimum of JOSM needed to run the plugin code without a GUI or network
+     */
+    static void setUpHeadless() {
+        final Preferences preferences = Preferences.main();
+        preferences.enableSaveOnPut(false);
+        Config.setPreferencesInstance(preferences);
+        Config.setBaseDirectoriesProvider(JosmBaseDirectories.getInstance());
+        Config.setUrlsProvider(JosmUrls.getInstance());
+        ProjectionRegistry.setProjection(Projections.getProjectionByCode("EPSG:3857"));
+    }
+
+    /**
+     * Generate a dataset
+     *
+     * @param roads          The number of highway ways
+     * @param segments       The number of segments in each highway way
+     * @param addressDensity The number of addresses per road segment
+     * @return The generated dataset
+     */
+    static DataSet generate(int roads, int segments, double addressDensity) {
+        final Random random = new Random(42);
+        final DataSet dataSet = new DataSet();
+        final int rows = Math.max(1, (int) Math.sqrt(roads));
+        long id = 1;
+        final List<Way> ways = new ArrayList<>(roads);
+        for (int i = 0; i < roads; i++) {
+            final double lat = ORIGIN_LAT + (i % rows) * ROAD_SPACING;
+            final double lon = ORIGIN_LON + (i / rows) * (segments + 1) * SEGMENT_LENGTH;
+            final List<Node> nodes = new ArrayList<>(segments + 1);
+            for (int j = 0; j <= segments; j++) {
+                final Node node = new Node(id++, 1);
+                node.setCoor(new LatLon(lat, lon + j * SEGMENT_LENGTH));
+                dataSet.addPrimitive(node);
+                nodes.add(node);
+            }
+            final Way way = new Way(id++, 1);
+            way.setNodes(nodes);
+            way.put("highway", "residential");
+            way.put("name", getName(i));
+            dataSet.addPrimitive(way);
+            ways.add(way);
+        }
+        final long addresses = Math.round(roads * segments * addressDensity);
+        for (long i = 0; i < addresses; i++) {
+            final Way way = ways.get(random.nextInt(ways.size()));
+            final LatLon start = way.firstNode().getCoor();
+            final Node address = new Node(id++, 1);
+            address.setCoor(new LatLon(start.lat() + (random.nextDouble() - 0.5) * ROAD_SPACING * 0.8,
+                    start.lon() + random.nextDouble() * segments * SEGMENT_LENGTH));
+            address.put("addr:housenumber", Long.toString(i));
+            address.put(ModifyWays.ADDR_STREET, way.get("name"));
+            dataSet.addPrimitive(address);
+        }
+        return dataSet;
+    }
+
+    /**
+     * Get the name of a generated road
+     *
+     * @param road The index of the road
+     * @return The name of the road
+     */
+    static String getName(int road) {
+        return "Road " + road / WAYS_PER_NAME;
+    }
+
+    /**
+     * Get the generated highways
+     *
+     * @param dataSet The dataset
+     * @return The highways
+     */
+    static Collection<OsmPrimitive> getHighways(DataSet dataSet) {
+        return dataSet.getWays().stream().filter(way -> way.hasKey("highway")).collect(Collectors.toList());
+    }
+
+    /**
+     * Get the generated highways with a name
+     *
+     * @param dataSet The dataset
+     * @param name    The name
+     * @return The highways with the name
+     */
+    static Collection<OsmPrimitive> getHighways(DataSet dataSet, String name) {
+        return dataSet.getWays().stream().filter(way -> way.hasTag("name", name)).collect(Collectors.toList());
+    }
+
+    /**
+     * Get the generated addresses
+     *
+     * @param dataSet The dataset
+     * @return The primitives with an {@code addr:street} tag
+     */
+    static Collection<OsmPrimitive> getAddresses(DataSet dataSet) {
+        return dataSet.allPrimitives().stream().filter(p -> p.hasKey(ModifyWays.ADDR_STREET))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,148 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+
+@Projection
+class AddressCandidatesTest {
+    private static Way road(String name, double lon) {
+        return TestUtils.newWay("highway=residential name=\"" + name + '"', new Node(new LatLon(39.08, lon)),
+                new Node(new LatLon(39.09, lon)));
+    }
+
+    private static List<OsmPrimitive> addresses(int count) {
+        final List<OsmPrimitive> addresses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // Spread out between the two roads, further away from the renamed road with each address
+            final Node address = new Node(new LatLon(39.081 + (i % 7) * 0.001, -108.5601 - i * 0.00005));
+            address.put(ModifyWays.ADDR_STREET, "North 8th Street");
+            addresses.add(address);
+        }
+        Collections.shuffle(addresses);
+        return addresses;
+    }
+
+    @Test
+    void testMatchesFullAssignment() {
+        final Way renamed = road("North 8th Street", -108.560);
+        final Way other = road("North 8th Street", -108.570);
+        final List<OsmPrimitive> addresses = addresses(150);
+        final List<OsmPrimitive> roads = Arrays.asList(renamed, other);
+        final AddressCandidates candidates = new AddressCandidates(Collections.singleton(renamed), addresses, roads,
+                Runnable::run);
+        assertTrue(candidates.isFinished());
+        assertEquals(candidates.getFound(), candidates.countReady(candidate -> true));
+        final List<OsmPrimitive> found = new ArrayList<>();
+        double previousDistance = -1;
+        for (AddressCandidates.Candidate candidate = candidates.next().join(); candidate != null;
+                candidate = candidates.next().join()) {
+            found.add(candidate.getAddress());
+            assertEquals(renamed, candidate.getMatch().getRoad());
+            assertTrue(candidate.getMatch().getDistanceSq() >= previousDistance);
+            previousDistance = candidate.getMatch().getDistanceSq();
+        }
+        assertEquals(StreetRenameEngine.assignAddresses(Collections.singleton(renamed), addresses, roads).keySet(),
+                new HashSet<>(found));
+        assertEquals(found.size(), candidates.getFound());
+        assertFalse(found.isEmpty());
+    }
+
+    @Test
+    void testNearestFirstAlongDiagonal() {
+        // The bounding box of a diagonal street covers every address, whether it is on the street or not
+        final Way renamed = TestUtils.newWay("highway=residential name=\"North 8th Street\"",
+                new Node(new LatLon(39.08, -108.58)), new Node(new LatLon(39.10, -108.56)));
+        final List<OsmPrimitive> addresses = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            final double along = (i % 20) * 0.001;
+            final double offset = (i / 20) * 0.0008;
+            final Node address = new Node(new LatLon(39.08 + along + offset, -108.58 + along));
+            address.put(ModifyWays.ADDR_STREET, "North 8th Street");
+            addresses.add(address);
+        }
+        Collections.shuffle(addresses);
+        final AddressCandidates candidates = new AddressCandidates(Collections.singleton(renamed), addresses,
+                Collections.singleton(renamed), Runnable::run);
+        double previousDistance = -1;
+        int count = 0;
+        for (AddressCandidates.Candidate candidate = candidates.next().join(); candidate != null;
+                candidate = candidates.next().join()) {
+            // Across batches, not just within a batch
+            assertTrue(candidate.getMatch().getDistanceSq() >= previousDistance);
+            previousDistance = candidate.getMatch().getDistanceSq();
+            count++;
+        }
+        assertEquals(addresses.size(), count);
+    }
+
+    @Test
+    void testFirstCandidateBeforeAllChecked() {
+        final Way renamed = road("North 8th Street", -108.560);
+        final List<Runnable> tasks = new ArrayList<>();
+        final Executor executor = tasks::add;
+        final AddressCandidates candidates = new AddressCandidates(Collections.singleton(renamed), addresses(10),
+                Collections.singleton(renamed), executor);
+        final CompletableFuture<AddressCandidates.Candidate> first = candidates.next();
+        assertFalse(first.isDone());
+        assertFalse(candidates.isFinished());
+        tasks.forEach(Runnable::run);
+        assertNotNull(first.join());
+        assertTrue(candidates.isFinished());
+    }
+
+    @Test
+    void testCancel() {
+        final Way renamed = road("North 8th Street", -108.560);
+        final List<Runnable> tasks = new ArrayList<>();
+        final AddressCandidates candidates = new AddressCandidates(Collections.singleton(renamed), addresses(500),
+                Collections.singleton(renamed), tasks::add);
+        candidates.cancel();
+        tasks.forEach(Runnable::run);
+        assertNull(candidates.next().join());
+        assertEquals(0, candidates.getFound());
+    }
+
+    @Test
+    void testAssignedFirst() {
+        final Way renamed = road("North 8th Street", -108.560);
+        // Much closer to another road with the old name, but listed in a street relation with the renamed road
+        final Way other = road("North 8th Street", -108.570);
+        final Node member = new Node(new LatLon(39.085, -108.5699));
+        member.put(ModifyWays.ADDR_STREET, "North 8th Street");
+        final List<OsmPrimitive> addresses = new ArrayList<>(addresses(10));
+        addresses.add(member);
+        final AddressCandidates candidates = new AddressCandidates(Collections.singleton(renamed),
+                Collections.singletonMap(member, renamed), addresses, Arrays.asList(renamed, other), Runnable::run);
+        final AddressCandidates.Candidate first = candidates.next().join();
+        assertEquals(member, first.getAddress());
+        assertEquals(renamed, first.getMatch().getRoad());
+        assertNull(first.getMatch().getSegment());
+        int count = 1;
+        while (candidates.next().join() != null) {
+            count++;
+        }
+        assertEquals(count, candidates.getFound());
+        assertEquals(StreetRenameEngine.assignAddresses(Collections.singleton(renamed),
+                addresses.subList(0, addresses.size() - 1), Arrays.asList(renamed, other)).size() + 1, count);
+    }
+}
@@ -0,0 +1,44 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.openstreetmap.josm.plugins.highwaynamemodification.StreetFixtures.address;
+import static org.openstreetmap.josm.plugins.highwaynamemodification.StreetFixtures.road;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+
+class AssociatedStreetsTest {
+    @Test
+    void testAddresses() {
+        final DataSet ds = new DataSet();
+        final Way way = road(ds, "Road 2");
+        final Node house = address(ds, "North 8th Street");
+        final Node alreadyChanged = address(ds, "Road 2");
+        final Node other = address(ds, "North 8th Street");
+        final Relation street = TestUtils.newRelation("type=associatedStreet name=\"North 8th Street\"",
+                new RelationMember("street", way), new RelationMember("house", house),
+                new RelationMember("house", alreadyChanged));
+        final Relation route = TestUtils.newRelation("type=route", new RelationMember("", way),
+                new RelationMember("house", other));
+        ds.addPrimitive(street);
+        ds.addPrimitive(route);
+
+        assertEquals(Collections.singleton(street), AssociatedStreets.getRelations(Collections.singleton(way)));
+        final Map<OsmPrimitive, OsmPrimitive> addresses = AssociatedStreets.getAddresses(Collections.singleton(way),
+                "North 8th Street");
+        assertEquals(Collections.singletonMap(house, way), addresses);
+        assertTrue(AssociatedStreets.getAddresses(Arrays.asList(house, other), "North 8th Street").isEmpty());
+    }
+}
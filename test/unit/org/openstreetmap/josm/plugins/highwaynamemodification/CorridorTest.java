@@ -0,0 +1,77 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.openstreetmap.josm.plugins.highwaynamemodification.StreetFixtures.address;
+import static org.openstreetmap.josm.plugins.highwaynamemodification.StreetFixtures.road;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+
+@BasicPreferences
+@Projection
+class CorridorTest {
+    @Test
+    void testDisabled() {
+        final DataSet ds = new DataSet();
+        final Way renamed = road(ds, "Road 2");
+        Corridor.DISTANCE.put(0);
+        assertNull(Corridor.search(ds, Collections.singleton(renamed)));
+    }
+
+    @Test
+    void testOnlyNearbyPrimitives() {
+        final DataSet ds = new DataSet();
+        final Way renamed = road(ds, "Road 2", new LatLon(39.08, -108.56), new LatLon(39.081, -108.56));
+        // A same-named street in another town
+        final Way otherTown = road(ds, "North 8th Street", new LatLon(39.5, -108.56), new LatLon(39.501, -108.56));
+        final Way nearby = road(ds, "North 8th Street", new LatLon(39.085, -108.56), new LatLon(39.086, -108.56));
+        final Node near = address(ds, "North 8th Street", new LatLon(39.0805, -108.5598));
+        address(ds, "North 8th Street", new LatLon(39.5005, -108.5598));
+        address(ds, "Road 3", new LatLon(39.0805, -108.5598));
+        Corridor.DISTANCE.put(500);
+        final Corridor corridor = Corridor.search(ds, Collections.singleton(renamed));
+        assertNotNull(corridor);
+        assertEquals(Collections.singletonList(near), corridor.getAddresses("North 8th Street"));
+        assertEquals(2, corridor.getHighways("North 8th Street", "Road 2").size());
+        assertTrue(corridor.getHighways("North 8th Street", "Road 2").containsAll(Arrays.asList(renamed, nearby)));
+        assertFalse(corridor.getHighways("North 8th Street").contains(otherTown));
+    }
+
+    @Test
+    void testDiagonalHighway() {
+        final DataSet ds = new DataSet();
+        final Way renamed = road(ds, "Road 2", new LatLon(39.08, -108.56), new LatLon(39.09, -108.55));
+        // About 17 m from the highway
+        final Node near = address(ds, "North 8th Street", new LatLon(39.085, -108.5552));
+        // In the bounding box of the highway, but over 600 m away from it
+        address(ds, "North 8th Street", new LatLon(39.0898, -108.5598));
+        Corridor.DISTANCE.put(200);
+        final Corridor corridor = Corridor.search(ds, Collections.singleton(renamed));
+        assertNotNull(corridor);
+        assertEquals(Collections.singletonList(near), corridor.getAddresses("North 8th Street"));
+    }
+
+    @Test
+    void testBuffer() {
+        final BBox bounds = new BBox(-108.56, 39.08, -108.55, 39.09);
+        final BBox buffered = Corridor.buffer(bounds, 1113.2);
+        assertEquals(39.07, buffered.getBottomRightLat(), 1e-9);
+        assertEquals(39.10, buffered.getTopLeftLat(), 1e-9);
+        // A degree of longitude is shorter than a degree of latitude away from the equator
+        assertTrue(bounds.getTopLeftLon() - buffered.getTopLeftLon() > 0.01);
+    }
+}
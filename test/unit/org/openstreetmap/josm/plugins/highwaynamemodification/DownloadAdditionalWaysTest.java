@@ -0,0 +1,52 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+
+@BasicPreferences
+class DownloadAdditionalWaysTest {
+    private static double getArea(Collection<Bounds> tiles) {
+        double area = 0;
+        for (Bounds tile : tiles) {
+            area += tile.getHeight() * tile.getWidth();
+        }
+        return area;
+    }
+
+    @Test
+    void testGetTilesShortStreet() {
+        // A short street across the corner of four grid tiles
+        final Way way = TestUtils.newWay("highway=residential name=\"North 8th Street\"",
+                new Node(new LatLon(39.0799, -108.5601)), new Node(new LatLon(39.0805, -108.5599)));
+        final Collection<Bounds> tiles = DownloadAdditionalWays.getTiles(Collections.singleton(way));
+        assertEquals(4, tiles.size());
+        // The baseline downloaded the bounding box of the street, grown by 0.01 degrees on each side
+        final double baseline = (0.0006 + 0.02) * (0.0002 + 0.02);
+        assertTrue(getArea(tiles) <= baseline + 1e-12, () -> getArea(tiles) + " > " + baseline);
+        // All of the street and the area around it is still covered
+        assertEquals(baseline, getArea(tiles), 1e-9);
+    }
+
+    @Test
+    void testGetTilesLongStreet() {
+        // About 11 km long, so it spans several grid tiles, each clipped to the corridor around the street
+        final Way way = TestUtils.newWay("highway=residential name=\"North 8th Street\"",
+                new Node(new LatLon(39.01, -108.555)), new Node(new LatLon(39.11, -108.555)));
+        final Collection<Bounds> tiles = DownloadAdditionalWays.getTiles(Collections.singleton(way));
+        assertTrue(tiles.size() > 3);
+        assertEquals((0.1 + 0.02) * 0.02, getArea(tiles), 1e-9);
+        assertTrue(tiles.stream().anyMatch(tile -> tile.contains(new LatLon(39.06, -108.555))));
+    }
+}
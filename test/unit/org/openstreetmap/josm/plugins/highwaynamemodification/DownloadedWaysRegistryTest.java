@@ -0,0 +1,50 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.openstreetmap.josm.plugins.highwaynamemodification.StreetFixtures.road;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Way;
+
+class DownloadedWaysRegistryTest {
+    @Test
+    void testMarkDownloaded() {
+        final DataSet ds = new DataSet();
+        final Way first = road(ds, "North 8th Street");
+        final Way second = road(ds, "North 8th Street");
+        final DownloadedWaysRegistry registry = new DownloadedWaysRegistry();
+        assertFalse(registry.isDownloaded(Collections.singleton(first), "North 8th Street"));
+        assertFalse(registry.isDownloaded(Collections.emptyList(), "North 8th Street"));
+
+        registry.markDownloaded(Collections.singleton(first), Arrays.asList("North 8th Street", "Road 2"));
+        assertTrue(registry.isDownloaded(Collections.singleton(first), "North 8th Street"));
+        assertTrue(registry.isDownloaded(first, Arrays.asList("North 8th Street", "Road 2")));
+        assertFalse(registry.isDownloaded(first, Arrays.asList("North 8th Street", "Road 3")));
+        assertFalse(registry.isDownloaded(Arrays.asList(first, second), "North 8th Street"));
+        assertFalse(registry.isDownloaded(Collections.singleton(first), "Road 3"));
+
+        // A rename does not change what has been downloaded around the highway
+        first.put("name", "Road 3");
+        assertTrue(registry.isDownloaded(Collections.singleton(first), "North 8th Street"));
+    }
+
+    @Test
+    void testDataSetsAreSeparate() {
+        // The same highway, loaded in two layers
+        final Way way = new Way(1, 1);
+        new DataSet().addPrimitive(way);
+        final Way copy = new Way(1, 1);
+        new DataSet().addPrimitive(copy);
+        final DownloadedWaysRegistry registry = new DownloadedWaysRegistry();
+        registry.markDownloaded(Collections.singleton(way), Collections.singleton("North 8th Street"));
+        assertTrue(registry.isDownloaded(Collections.singleton(way), "North 8th Street"));
+        assertFalse(registry.isDownloaded(Collections.singleton(copy), "North 8th Street"));
+        assertFalse(registry.isDownloaded(Arrays.asList(way, copy), "North 8th Street"));
+    }
+}
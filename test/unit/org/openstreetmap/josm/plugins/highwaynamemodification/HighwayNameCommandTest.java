@@ -0,0 +1,83 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.command.ChangePropertyCommand;
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.event.DataSetListenerAdapter;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+
+@BasicPreferences
+class HighwayNameCommandTest {
+    @Test
+    void testListenerSeesPluginChanges() {
+        final Way way = TestUtils.newWay("highway=residential name=\"North 8th Street\"",
+                new Node(new LatLon(39.084616, -108.559293)), new Node(new LatLon(39.0854611, -108.5592888)));
+        final Node address = new Node(new LatLon(39.0850, -108.5592));
+        address.put(ModifyWays.ADDR_STREET, "North 8th Street");
+        final DataSet ds = new DataSet();
+        ds.addPrimitiveRecursive(way);
+        ds.addPrimitive(address);
+        final List<Boolean> executing = new ArrayList<>();
+        ds.addDataSetListener(new DataSetListenerAdapter(event -> executing.add(HighwayNameCommand.isExecuting())));
+
+        final List<Command> commands = Arrays.asList(new ChangePropertyCommand(way, "name", "Road 2"),
+                new ChangePropertyCommand(address, ModifyWays.ADDR_STREET, "Road 2"));
+        final HighwayNameCommand command = new HighwayNameCommand("test", commands);
+        command.executeCommand();
+        assertEquals("Road 2", way.get("name"));
+        assertEquals("Road 2", address.get(ModifyWays.ADDR_STREET));
+        assertFalse(executing.isEmpty());
+        assertEquals(Collections.singleton(Boolean.TRUE), new HashSet<>(executing));
+        assertFalse(HighwayNameCommand.isExecuting());
+
+        executing.clear();
+        command.undoCommand();
+        assertEquals("North 8th Street", way.get("name"));
+        assertFalse(executing.isEmpty());
+        assertEquals(Collections.singleton(Boolean.TRUE), new HashSet<>(executing));
+        assertFalse(HighwayNameCommand.isExecuting());
+    }
+
+    @Test
+    void testListenerIgnoresPluginChanges() {
+        final Way way = TestUtils.newWay("highway=residential name=\"North 8th Street\"",
+                new Node(new LatLon(39.084616, -108.559293)), new Node(new LatLon(39.0854611, -108.5592888)));
+        final DataSet ds = new DataSet();
+        ds.addPrimitiveRecursive(way);
+        final HighwayNameListener listener = new HighwayNameListener();
+        ds.addDataSetListener(listener);
+        // Keep anything that is scheduled pending, instead of starting a ModifyWays
+        RenameScheduler.QUIET_WINDOW.put(60_000);
+        try {
+            final HighwayNameCommand command = new HighwayNameCommand("test",
+                    Collections.singletonList(new ChangePropertyCommand(way, "name", "Road 2")));
+            command.executeCommand();
+            assertEquals("Road 2", way.get("name"));
+            assertEquals(0, listener.getScheduler().size());
+            command.undoCommand();
+            assertEquals("North 8th Street", way.get("name"));
+            assertEquals(0, listener.getScheduler().size());
+
+            // The same rename made by the user is scheduled
+            new ChangePropertyCommand(way, "name", "Road 2").executeCommand();
+            assertEquals(1, listener.getScheduler().size());
+        } finally {
+            listener.destroy();
+        }
+    }
+}
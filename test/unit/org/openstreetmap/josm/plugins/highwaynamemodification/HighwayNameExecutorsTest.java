@@ -0,0 +1,49 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+
+@BasicPreferences
+class HighwayNameExecutorsTest {
+    @AfterEach
+    void tearDown() {
+        HighwayNameExecutors.shutdown();
+    }
+
+    @Test
+    void testParallelStreamsStayInCpuPool() {
+        HighwayNameExecutors.CPU_THREADS.put(2);
+        final Set<String> threads = CompletableFuture.supplyAsync(() -> IntStream.range(0, 1000).parallel()
+                .mapToObj(i -> Thread.currentThread().getName()).collect(Collectors.toSet()),
+                HighwayNameExecutors.getCpuExecutor()).join();
+        assertTrue(threads.stream().allMatch(name -> name.startsWith("highwaynamemodification-cpu-")),
+                threads::toString);
+        assertEquals(2, HighwayNameExecutors.getCpuExecutor().getParallelism());
+    }
+
+    @Test
+    void testShutdown() {
+        final ExecutorService io = HighwayNameExecutors.getIoExecutor();
+        final ForkJoinPool cpu = HighwayNameExecutors.getCpuExecutor();
+        assertEquals("highwaynamemodification-io-1",
+                CompletableFuture.supplyAsync(() -> Thread.currentThread().getName(), io).join());
+        HighwayNameExecutors.shutdown();
+        assertTrue(io.isShutdown());
+        assertTrue(cpu.isShutdown());
+        assertNotSame(io, HighwayNameExecutors.getIoExecutor());
+        assertNotSame(cpu, HighwayNameExecutors.getCpuExecutor());
+    }
+}
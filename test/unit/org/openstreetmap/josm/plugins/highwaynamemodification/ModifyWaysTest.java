@@ -0,0 +1,59 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.JOptionPane;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.plugins.highwaynamemodification.testutils.GuiAnswers;
+import org.openstreetmap.josm.testutils.annotations.Main;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+
+@GuiAnswers
+@Main
+@Projection
+class ModifyWaysTest {
+    /**
+     * All candidates are available before the review starts, and the answer is remembered, so the whole review
+     * happens without waiting. This must not recurse once per address.
+     */
+    @Test
+    void testReviewManyAvailableCandidates() throws Exception {
+        GuiAnswers.StandardAnswers.setResponse(GuiAnswers.Options.CHANGE_ADDR_STREET_TAGS, JOptionPane.YES_OPTION);
+        final DataSet ds = new DataSet();
+        final Way renamed = TestUtils.newWay("highway=residential name=\"Road 2\"",
+                new Node(new LatLon(39.084616, -108.559293)), new Node(new LatLon(39.0854611, -108.5592888)));
+        ds.addPrimitiveRecursive(renamed);
+        final Map<OsmPrimitive, OsmPrimitive> assigned = new LinkedHashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            final Node address = new Node(new LatLon(39.0850, -108.5592 + i * 1e-7));
+            address.put(ModifyWays.ADDR_STREET, "North 8th Street");
+            ds.addPrimitive(address);
+            assigned.put(address, renamed);
+        }
+        MainApplication.getLayerManager().addLayer(new OsmDataLayer(ds, "testReviewManyAvailableCandidates", null));
+
+        final ModifyWays.CreateGuiAskDialog dialog = new ModifyWays.CreateGuiAskDialog(
+                Collections.singleton(renamed), "Road 2", assigned, Collections.emptyList(),
+                Collections.singleton(renamed));
+        final Command command = dialog.review().get(60, TimeUnit.SECONDS);
+        assertNotNull(command);
+        assertEquals(assigned.size(), command.getParticipatingPrimitives().size());
+    }
+}
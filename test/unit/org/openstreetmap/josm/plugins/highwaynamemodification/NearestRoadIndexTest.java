@@ -0,0 +1,86 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+import org.openstreetmap.josm.tools.Geometry;
+
+@Projection
+class NearestRoadIndexTest {
+    private static Way road(String name, double lon) {
+        return TestUtils.newWay("highway=residential name=\"" + name + '"', new Node(new LatLon(39.08, lon)),
+                new Node(new LatLon(39.09, lon)));
+    }
+
+    @Test
+    void testNearestRoad() {
+        final Way first = road("North 8th Street", -108.560);
+        final Way second = road("North 9th Street", -108.561);
+        final NearestRoadIndex index = new NearestRoadIndex(Arrays.asList(first, second));
+        final Node nearFirst = new Node(new LatLon(39.085, -108.5601));
+        final Node nearSecond = new Node(new LatLon(39.085, -108.5609));
+        assertSame(first, index.getNearestRoad(nearFirst));
+        assertSame(second, index.getNearestRoad(nearSecond));
+        assertTrue(index.isNearest(nearFirst, first));
+        assertFalse(index.isNearest(nearFirst, second));
+    }
+
+    @Test
+    void testMatchesGeometry() {
+        final Way[] roads = new Way[20];
+        for (int i = 0; i < roads.length; i++) {
+            roads[i] = road("Road " + i, -108.56 - i * 0.0013);
+        }
+        final NearestRoadIndex index = new NearestRoadIndex(Arrays.asList(roads));
+        for (int i = 0; i < 100; i++) {
+            final Way building = TestUtils.newWay("building=yes",
+                    new Node(new LatLon(39.075 + i * 0.0002, -108.555 - i * 0.0003)),
+                    new Node(new LatLon(39.0751 + i * 0.0002, -108.5551 - i * 0.0003)));
+            assertSame(Geometry.getClosestPrimitive(building, Arrays.asList(roads)), index.getNearestRoad(building));
+        }
+    }
+
+    @Test
+    void testEmpty() {
+        final NearestRoadIndex index = new NearestRoadIndex(Collections.emptyList());
+        final Node address = new Node(new LatLon(39.085, -108.5601));
+        assertNull(index.getNearestRoad(address));
+        assertFalse(index.isNearest(address, road("North 8th Street", -108.560)));
+    }
+
+    @Test
+    void testClosestSegment() {
+        final Node[] nodes = new Node[50];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new Node(new LatLon(39.08 + i * 0.0005, -108.56 + (i % 2) * 0.0001));
+        }
+        final Way road = TestUtils.newWay("highway=residential name=\"North 8th Street\"", nodes);
+        final NearestRoadIndex index = new NearestRoadIndex(Collections.singleton(road));
+        for (int i = 0; i < 40; i++) {
+            final Node address = new Node(new LatLon(39.0801 + i * 0.0006, -108.5595));
+            final NearestRoadIndex.Match match = index.getNearestMatchOf(address, Collections.singleton(road));
+            assertNotNull(match);
+            assertSame(road, match.getRoad());
+            assertEquals(Geometry.getClosestWaySegment(road, address), match.getSegment());
+        }
+        final Way point = TestUtils.newWay("highway=residential", new Node(new LatLon(39.08, -108.57)));
+        final NearestRoadIndex pointIndex = new NearestRoadIndex(Collections.singleton(point));
+        final NearestRoadIndex.Match pointMatch = pointIndex.getNearestMatchOf(nodes[0], Collections.singleton(point));
+        assertNotNull(pointMatch);
+        assertNull(pointMatch.getSegment());
+    }
+}
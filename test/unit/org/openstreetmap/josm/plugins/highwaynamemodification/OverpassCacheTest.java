@@ -0,0 +1,164 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.plugins.highwaynamemodification.testutils.Overpass;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.junit5.WireMockRuntimeInfo;
+
+@BasicPreferences
+class OverpassCacheTest {
+    private static final String QUERY = "[out:xml][timeout:15][bbox:{{bbox}}];way[\"name\"=\"North 8th Street\"];"
+            + "out meta;";
+    private static final Bounds BOUNDS = new Bounds(39.08, -108.56, 39.09, -108.55);
+
+    @TempDir
+    Path cacheDirectory;
+    private OverpassCache cache;
+    private DataSet dataSet;
+
+    @BeforeEach
+    void setUp() {
+        cache = new OverpassCache(cacheDirectory.toFile());
+        dataSet = new DataSet();
+        dataSet.addDataSource(new DataSource(BOUNDS, "test"));
+        final Node first = new Node(1, 2);
+        first.setCoor(new LatLon(39.084616, -108.559293));
+        final Node second = new Node(2, 1);
+        second.setCoor(new LatLon(39.0854611, -108.5592888));
+        second.put(ModifyWays.ADDR_STREET, "North 8th Street");
+        dataSet.addPrimitive(first);
+        dataSet.addPrimitive(second);
+        final Way way = new Way(3, 4);
+        way.setNodes(Arrays.asList(first, second));
+        way.put("highway", "residential");
+        way.put("name", "North 8th Street");
+        dataSet.addPrimitive(way);
+        final Relation relation = new Relation(5, 1);
+        relation.put("type", "associatedStreet");
+        dataSet.addPrimitive(relation);
+        relation.setMembers(Arrays.asList(new RelationMember("street", way), new RelationMember("house", second)));
+    }
+
+    @Test
+    void testRoundTrip() {
+        assertNull(cache.get(QUERY, BOUNDS));
+        cache.put(QUERY, BOUNDS, dataSet);
+        final DataSet cached = cache.get(QUERY, BOUNDS);
+        assertNotNull(cached);
+        assertEquals(2, cached.getNodes().size());
+        assertEquals(1, cached.getWays().size());
+        assertEquals(1, cached.getRelations().size());
+        assertEquals(Collections.singletonList(BOUNDS), cached.getDataSourceBounds());
+
+        final Node node = (Node) cached.getPrimitiveById(2, OsmPrimitiveType.NODE);
+        assertEquals("North 8th Street", node.get(ModifyWays.ADDR_STREET));
+        assertEquals(new LatLon(39.0854611, -108.5592888), node.getCoor());
+        final Way way = (Way) cached.getPrimitiveById(3, OsmPrimitiveType.WAY);
+        assertEquals(4, way.getVersion());
+        assertEquals("North 8th Street", way.get("name"));
+        assertEquals(Arrays.asList(1L, 2L), Arrays.asList(way.getNode(0).getUniqueId(), way.getNode(1).getUniqueId()));
+        final Relation relation = (Relation) cached.getPrimitiveById(5, OsmPrimitiveType.RELATION);
+        assertEquals(2, relation.getMembersCount());
+        assertEquals("house", relation.getMember(1).getRole());
+        assertEquals(node, relation.getMember(1).getMember());
+    }
+
+    @Test
+    void testDifferentKey() {
+        cache.put(QUERY, BOUNDS, dataSet);
+        assertNull(cache.get(QUERY.replace("North", "South"), BOUNDS));
+        assertNull(cache.get(QUERY, new Bounds(39.07, -108.56, 39.09, -108.55)));
+    }
+
+    @Test
+    void testExpiry() {
+        cache.put(QUERY, BOUNDS, dataSet);
+        final File[] files = cacheDirectory.toFile().listFiles();
+        assertNotNull(files);
+        assertEquals(1, files.length);
+        assertTrue(files[0].setLastModified(System.currentTimeMillis() - 25 * 60 * 60 * 1000L));
+        assertNull(cache.get(QUERY, BOUNDS));
+        assertEquals(0, cacheDirectory.toFile().listFiles().length);
+    }
+
+    @Test
+    void testConcurrentPut() throws Exception {
+        final int threads = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<CompletableFuture<Void>> puts = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                puts.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    cache.put(QUERY, BOUNDS, dataSet);
+                }, executor));
+            }
+            start.countDown();
+            CompletableFuture.allOf(puts.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        // A single complete entry, and no temporary files left behind
+        assertEquals(1, cacheDirectory.toFile().listFiles().length);
+        final DataSet cached = cache.get(QUERY, BOUNDS);
+        assertNotNull(cached);
+        assertEquals(1, cached.getWays().size());
+    }
+
+    @Overpass
+    @Test
+    void testDownloadServedFromCache(WireMockRuntimeInfo wireMockRuntimeInfo) {
+        wireMockRuntimeInfo.getWireMock().register(WireMock.post(WireMock.urlPathEqualTo("/api/interpreter"))
+                .withRequestBody(WireMock.containing("North 8th Street"))
+                .willReturn(WireMock.ok("<?xml version='1.0' encoding='UTF-8'?>"
+                        + "<osm version='0.6' generator='Overpass API'>"
+                        + "<node id='1' version='2' lat='39.084616' lon='-108.559293'>"
+                        + "<tag k='addr:street' v='North 8th Street'/></node></osm>")
+                        .withHeader("Content-Type", "application/osm3s+xml")));
+        final DataSet downloaded = DownloadAdditionalWays.downloadTile(cache, BOUNDS, QUERY);
+        assertNotNull(downloaded);
+        assertEquals(1, downloaded.getNodes().size());
+
+        final DataSet cached = DownloadAdditionalWays.downloadTile(cache, BOUNDS, QUERY);
+        assertNotNull(cached);
+        assertEquals("North 8th Street", cached.getPrimitiveById(1, OsmPrimitiveType.NODE).get(ModifyWays.ADDR_STREET));
+        wireMockRuntimeInfo.getWireMock().verifyThat(1,
+                WireMock.postRequestedFor(WireMock.urlPathEqualTo("/api/interpreter")));
+    }
+}
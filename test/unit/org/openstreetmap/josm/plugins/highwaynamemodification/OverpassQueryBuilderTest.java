@@ -0,0 +1,49 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+class OverpassQueryBuilderTest {
+    @Test
+    void testSingleClausePerElementType() {
+        final String query = new OverpassQueryBuilder().names(Arrays.asList("North 8th Street", "Road 2")).build();
+        assertEquals("[out:xml][timeout:15][bbox:{{bbox}}];("
+                + "node[~\"name\"~\"^(North 8th Street|Road 2)$\"];"
+                + "way[~\"name\"~\"^(North 8th Street|Road 2)$\"];"
+                + "relation[~\"name\"~\"^(North 8th Street|Road 2)$\"];"
+                + "node[\"addr:street\"~\"^(North 8th Street|Road 2)$\"];"
+                + "way[\"addr:street\"~\"^(North 8th Street|Road 2)$\"];"
+                + "relation[\"addr:street\"~\"^(North 8th Street|Road 2)$\"];"
+                + ");(._;<;);(._;>;);out meta;", query);
+    }
+
+    @Test
+    void testDeterministicOrder() {
+        assertEquals(new OverpassQueryBuilder().names(Arrays.asList("b", "a", "c")).build(),
+                new OverpassQueryBuilder().names(Arrays.asList("c", "b", "a", "b")).build());
+    }
+
+    @Test
+    void testEscaping() {
+        assertEquals("St\\. John's", OverpassQueryBuilder.escapeRegex("St. John's"));
+        assertEquals("\\(Old\\) Road \\$1\\|2", OverpassQueryBuilder.escapeRegex("(Old) Road $1|2"));
+        final String query = new OverpassQueryBuilder().names(Collections.singleton("The \"Main\" St.")).build();
+        assertTrue(query.contains("way[~\"name\"~\"^(The \\\"Main\\\" St\\\\.)$\"];"), query);
+    }
+
+    @Test
+    void testOutputMode() {
+        final String query = new OverpassQueryBuilder().names(Collections.singleton("a")).timeout(25)
+                .outputMode(OverpassQueryBuilder.OutputMode.SKEL).build();
+        assertTrue(query.startsWith("[out:xml][timeout:25]"), query);
+        assertTrue(query.endsWith("out skel;"), query);
+        assertThrows(IllegalStateException.class, () -> new OverpassQueryBuilder().build());
+    }
+}
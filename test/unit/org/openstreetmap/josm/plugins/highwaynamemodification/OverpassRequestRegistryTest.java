@@ -0,0 +1,73 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+
+class OverpassRequestRegistryTest {
+    private static final Bounds TILE = new Bounds(39.04, -108.56, 39.08, -108.52);
+
+    @Test
+    void testPendingRequestIsShared() {
+        final DataSet ds = new DataSet();
+        final OverpassRequestRegistry registry = new OverpassRequestRegistry();
+        final CompletableFuture<Collection<OsmPrimitive>> first = new CompletableFuture<>();
+        final CompletableFuture<Collection<OsmPrimitive>> second = new CompletableFuture<>();
+        assertNull(registry.claim(ds, "North 8th Street", TILE, first));
+        // A simultaneous rename of the same street shares the download
+        assertSame(first, registry.claim(ds, "North 8th Street", TILE, second));
+        // So does a request for a smaller area
+        assertSame(first, registry.claim(ds, "North 8th Street", new Bounds(39.05, -108.55, 39.06, -108.54), second));
+        assertNull(registry.claim(ds, "Road 2", TILE, second));
+        assertNull(registry.claim(ds, "North 8th Street", new Bounds(39.08, -108.56, 39.12, -108.52), second));
+        assertNull(registry.claim(new DataSet(), "North 8th Street", TILE, second));
+    }
+
+    @Test
+    void testCompletedRequestIsShared() {
+        final DataSet ds = new DataSet();
+        final Way way = TestUtils.newWay("highway=residential name=\"North 8th Street\"",
+                new Node(new LatLon(39.05, -108.55)), new Node(new LatLon(39.06, -108.55)));
+        final Way other = TestUtils.newWay("highway=residential name=\"Road 2\"",
+                new Node(new LatLon(39.05, -108.54)), new Node(new LatLon(39.06, -108.54)));
+        ds.addPrimitiveRecursive(way);
+        ds.addPrimitiveRecursive(other);
+        final OverpassRequestRegistry registry = new OverpassRequestRegistry();
+        final CompletableFuture<Collection<OsmPrimitive>> first = new CompletableFuture<>();
+        assertNull(registry.claim(ds, "North 8th Street", TILE, first));
+        first.complete(Arrays.asList(way, other));
+
+        final CompletableFuture<Collection<OsmPrimitive>> shared = registry.claim(ds, "North 8th Street", TILE,
+                new CompletableFuture<>());
+        assertNotNull(shared);
+        assertEquals(Collections.singletonList(way), shared.join());
+        assertEquals(1, registry.size(ds, "North 8th Street"));
+    }
+
+    @Test
+    void testFailedRequestIsForgotten() {
+        final DataSet ds = new DataSet();
+        final OverpassRequestRegistry registry = new OverpassRequestRegistry();
+        final CompletableFuture<Collection<OsmPrimitive>> first = new CompletableFuture<>();
+        assertNull(registry.claim(ds, "North 8th Street", TILE, first));
+        first.complete(null);
+        assertEquals(0, registry.size(ds, "North 8th Street"));
+        assertNull(registry.claim(ds, "North 8th Street", TILE, new CompletableFuture<>()));
+    }
+}
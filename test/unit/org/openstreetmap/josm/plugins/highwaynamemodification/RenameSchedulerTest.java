@@ -0,0 +1,74 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+
+@BasicPreferences
+class RenameSchedulerTest {
+    private final Map<String, List<OsmPrimitive>> processed = new LinkedHashMap<>();
+    private RenameScheduler scheduler;
+    private Way highway;
+
+    @BeforeEach
+    void setUp() {
+        // Long enough that the timer never flushes during a test
+        RenameScheduler.QUIET_WINDOW.put(60_000);
+        this.scheduler = new RenameScheduler((oldName, primitives) -> this.processed
+                .computeIfAbsent(oldName, name -> new ArrayList<>()).addAll(primitives));
+        this.highway = StreetFixtures.road(new DataSet(), "A");
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.scheduler.shutdown();
+    }
+
+    private void rename(String newName) {
+        final String oldName = this.highway.get("name");
+        this.highway.put("name", newName);
+        this.scheduler.schedule(oldName, Collections.singleton(this.highway));
+    }
+
+    @Test
+    void testCoalesce() {
+        rename("B");
+        rename("C");
+        assertEquals(1, this.scheduler.size());
+        assertTrue(this.processed.isEmpty());
+        this.scheduler.flush();
+        // A single rename from A; the new name C is read from the highway
+        assertEquals(Collections.singletonMap("A", Collections.singletonList(this.highway)), this.processed);
+        assertEquals(0, this.scheduler.size());
+    }
+
+    @Test
+    void testBackToOriginalName() {
+        rename("B");
+        rename("A");
+        this.scheduler.flush();
+        assertTrue(this.processed.isEmpty());
+    }
+
+    @Test
+    void testNoQuietWindow() {
+        RenameScheduler.QUIET_WINDOW.put(0);
+        rename("B");
+        assertEquals(Collections.singletonMap("A", Collections.singletonList(this.highway)), this.processed);
+        assertEquals(0, this.scheduler.size());
+    }
+}
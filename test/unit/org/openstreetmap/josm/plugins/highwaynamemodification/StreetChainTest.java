@@ -0,0 +1,42 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.openstreetmap.josm.plugins.highwaynamemodification.StreetFixtures.road;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+
+class StreetChainTest {
+    @Test
+    void testWalk() {
+        final DataSet ds = new DataSet();
+        final Node[] nodes = new Node[6];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new Node(new LatLon(39.08 + i * 0.001, -108.56));
+        }
+        final Way renamed = road(ds, "Road 2", nodes[0], nodes[1]);
+        final Way first = road(ds, "North 8th Street", nodes[1], nodes[2]);
+        // The street changes name at an intersection
+        final Way other = road(ds, "Main Street", nodes[2], nodes[3]);
+        final Way second = road(ds, "North 8th Street", nodes[2], nodes[4]);
+        // Same name, but not connected
+        road(ds, "North 8th Street", new LatLon(39.5, -108.56), new LatLon(39.51, -108.56));
+        final Way third = road(ds, "North 8th Street", nodes[4], nodes[5]);
+
+        final Predicate<Way> follow = way -> way.hasTag("name", "North 8th Street");
+        assertEquals(Arrays.asList(first, second, third),
+                StreetChain.walk(Collections.singleton(renamed), follow, 100));
+        assertEquals(Arrays.asList(first, second), StreetChain.walk(Collections.singleton(renamed), follow, 2));
+        assertEquals(Collections.emptyList(), StreetChain.walk(Collections.singleton(renamed), follow, 0));
+        assertEquals(Collections.singletonList(other),
+                StreetChain.walk(Collections.singleton(first), way -> way.hasTag("name", "Main Street"), 100));
+    }
+}
@@ -0,0 +1,90 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+
+/**
+ * Highways and addresses for tests. Everything is added to the dataset it is created for.
+ */
+final class StreetFixtures {
+    /** The location of the default highway, from the start of North 8th Street in Grand Junction */
+    private static final LatLon[] DEFAULT_ROAD = { new LatLon(39.084616, -108.559293),
+            new LatLon(39.0854611, -108.5592888) };
+    /** The location of the default address, next to the default highway */
+    private static final LatLon DEFAULT_ADDRESS = new LatLon(39.0850, -108.5592);
+
+    private StreetFixtures() {
+        // Hide constructor
+    }
+
+    /**
+     * Create a residential highway at the default location
+     *
+     * @param dataSet The dataset to add the highway to
+     * @param name    The name of the highway
+     * @return The highway
+     */
+    static Way road(DataSet dataSet, String name) {
+        return road(dataSet, name, DEFAULT_ROAD);
+    }
+
+    /**
+     * Create a residential highway through new nodes
+     *
+     * @param dataSet     The dataset to add the highway to
+     * @param name        The name of the highway
+     * @param coordinates The locations of the nodes
+     * @return The highway
+     */
+    static Way road(DataSet dataSet, String name, LatLon... coordinates) {
+        final Node[] nodes = new Node[coordinates.length];
+        for (int i = 0; i < coordinates.length; i++) {
+            nodes[i] = new Node(coordinates[i]);
+        }
+        return road(dataSet, name, nodes);
+    }
+
+    /**
+     * Create a residential highway through nodes, which may already be in the dataset
+     *
+     * @param dataSet The dataset to add the highway to
+     * @param name    The name of the highway
+     * @param nodes   The nodes of the highway
+     * @return The highway
+     */
+    static Way road(DataSet dataSet, String name, Node... nodes) {
+        final Way way = TestUtils.newWay("highway=residential name=\"" + name + '"', nodes);
+        dataSet.addPrimitiveRecursive(way);
+        return way;
+    }
+
+    /**
+     * Create an address node at the default location
+     *
+     * @param dataSet The dataset to add the address to
+     * @param street  The {@code addr:street} of the address
+     * @return The address
+     */
+    static Node address(DataSet dataSet, String street) {
+        return address(dataSet, street, DEFAULT_ADDRESS);
+    }
+
+    /**
+     * Create an address node
+     *
+     * @param dataSet     The dataset to add the address to
+     * @param street      The {@code addr:street} of the address
+     * @param coordinates The location of the address
+     * @return The address
+     */
+    static Node address(DataSet dataSet, String street, LatLon coordinates) {
+        final Node address = new Node(coordinates);
+        address.put(ModifyWays.ADDR_STREET, street);
+        dataSet.addPrimitive(address);
+        return address;
+    }
+}
@@ -0,0 +1,122 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.layer.MainLayerManager;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+import org.openstreetmap.josm.testutils.annotations.Main;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+
+@BasicPreferences
+class StreetNameIndexTest {
+    private DataSet dataSet;
+    private Way highway;
+    private Node address;
+
+    @BeforeEach
+    void setUp() {
+        StreetNameIndex.invalidateAll();
+        highway = TestUtils.newWay("highway=residential name=\"North 8th Street\"",
+                new Node(new LatLon(39.084616, -108.559293)), new Node(new LatLon(39.0854611, -108.5592888)));
+        address = new Node(new LatLon(39.085, -108.5591));
+        address.put(ModifyWays.ADDR_STREET, "North 8th Street");
+        dataSet = new DataSet();
+        dataSet.addPrimitiveRecursive(highway);
+        dataSet.addPrimitive(address);
+        dataSet.addDataSetListener(new HighwayNameListener());
+    }
+
+    @Test
+    void testInitialBuild() {
+        final StreetNameIndex index = StreetNameIndex.getIndex(dataSet);
+        assertSame(index, StreetNameIndex.getIndex(dataSet));
+        assertEquals(Collections.singletonList(highway), index.getHighways("North 8th Street"));
+        assertEquals(Collections.singletonList(address), index.getAddresses("North 8th Street"));
+        assertTrue(index.getAddresses("Road 2").isEmpty());
+    }
+
+    @Test
+    void testTagsChanged() {
+        final StreetNameIndex index = StreetNameIndex.getIndex(dataSet);
+        address.put(ModifyWays.ADDR_STREET, "Road 2");
+        highway.put("highway", null);
+        assertTrue(index.getAddresses("North 8th Street").isEmpty());
+        assertEquals(Collections.singletonList(address), index.getAddresses("Road 2"));
+        assertTrue(index.getHighways("North 8th Street").isEmpty());
+    }
+
+    @Test
+    void testPrimitivesAddedRemoved() {
+        final StreetNameIndex index = StreetNameIndex.getIndex(dataSet);
+        final Node newAddress = new Node(new LatLon(39.0851, -108.5591));
+        newAddress.put(ModifyWays.ADDR_STREET, "North 8th Street");
+        dataSet.addPrimitive(newAddress);
+        assertEquals(2, index.getAddresses("North 8th Street").size());
+        dataSet.removePrimitive(address);
+        assertEquals(Collections.singletonList(newAddress), index.getAddresses("North 8th Street"));
+    }
+
+    @Test
+    void testMergeData() {
+        // Not the active layer, so no listener keeps the index current
+        final DataSet inactive = new DataSet();
+        inactive.addPrimitiveRecursive(TestUtils.newWay("highway=residential name=\"North 8th Street\"",
+                new Node(new LatLon(39.084616, -108.559293)), new Node(new LatLon(39.0854611, -108.5592888))));
+        assertTrue(StreetNameIndex.getIndex(inactive).getAddresses("North 8th Street").isEmpty());
+
+        final DataSet downloaded = new DataSet();
+        final Node downloadedAddress = new Node(10, 1);
+        downloadedAddress.setCoor(new LatLon(39.0851, -108.5591));
+        downloadedAddress.put(ModifyWays.ADDR_STREET, "North 8th Street");
+        downloaded.addPrimitive(downloadedAddress);
+        DownloadAdditionalWays.mergeData(inactive, downloaded, Collections.singleton("North 8th Street"));
+        assertNull(StreetNameIndex.getExistingIndex(inactive));
+        assertEquals(1, StreetNameIndex.getIndex(inactive).getAddresses("North 8th Street").size());
+    }
+
+    @Main
+    @Projection
+    @Test
+    void testLayerChanges() {
+        final HighwayNameListener listener = new HighwayNameListener();
+        final MainLayerManager layerManager = MainApplication.getLayerManager();
+        layerManager.addLayerChangeListener(listener);
+        layerManager.addActiveLayerChangeListener(listener);
+        try {
+            final OsmDataLayer layer = new OsmDataLayer(dataSet, "StreetNameIndexTest", null);
+            layerManager.addLayer(layer);
+            StreetNameIndex.getIndex(dataSet);
+            assertNotNull(StreetNameIndex.getExistingIndex(dataSet));
+
+            // Changes to a dataset that is not the edit dataset are not seen, so its index is dropped
+            final DataSet other = new DataSet();
+            layerManager.addLayer(new OsmDataLayer(other, "Other", null));
+            assertNull(StreetNameIndex.getExistingIndex(dataSet));
+
+            // The index of a removed layer is dropped, so it does not keep the dataset alive
+            layerManager.setActiveLayer(layer);
+            StreetNameIndex.getIndex(dataSet);
+            layerManager.removeLayer(layer);
+            assertNull(StreetNameIndex.getExistingIndex(dataSet));
+        } finally {
+            layerManager.removeActiveLayerChangeListener(listener);
+            layerManager.removeLayerChangeListener(listener);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.highwaynamemodification;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.openstreetmap.josm.plugins.highwaynamemodification.StreetFixtures.address;
+import static org.openstreetmap.josm.plugins.highwaynamemodification.StreetFixtures.road;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+
+@BasicPreferences
+@Projection
+class StreetRenameEngineTest {
+    @Test
+    void testRename() {
+        final DataSet dataSet = new DataSet();
+        final Way renamed = road(dataSet, "North 8th Street", new LatLon(39.08, -108.560), new LatLon(39.09, -108.560));
+        final Way other = road(dataSet, "North 8th Street", new LatLon(39.08, -108.570), new LatLon(39.09, -108.570));
+        final Way target = road(dataSet, "Road 2", new LatLon(39.08, -108.580), new LatLon(39.09, -108.580));
+        final Node near = address(dataSet, "North 8th Street", new LatLon(39.085, -108.5601));
+        final Node nearOther = address(dataSet, "North 8th Street", new LatLon(39.085, -108.5699));
+        final Node nearTarget = address(dataSet, "Road 2", new LatLon(39.085, -108.5801));
+        other.put("name", "Road 3");
+        final Map<String, String> renames = new LinkedHashMap<>();
+        renames.put("North 8th Street", "Road 2");
+        renames.put("Road 2", "Road 4");
+        renames.put("Unknown Street", "Road 5");
+
+        final List<StreetRenameEngine.RenameResult> results = new StreetRenameEngine(dataSet).rename(renames);
+
+        assertEquals(3, results.size());
+        assertEquals("Road 2", renamed.get("name"));
+        assertEquals("Road 4", target.get("name"));
+        assertEquals("Road 3", other.get("name"));
+        assertEquals("Road 2", near.get(ModifyWays.ADDR_STREET));
+        // Only the renamed ways are considered, so the address follows the only way that had the old name
+        assertEquals("Road 2", nearOther.get(ModifyWays.ADDR_STREET));
+        assertEquals("Road 4", nearTarget.get(ModifyWays.ADDR_STREET));
+        assertTrue(renamed.isModified());
+        assertEquals(Arrays.asList(1, 2), Arrays.asList(results.get(0).getHighways().size(),
+                results.get(0).getAddresses().size()));
+        assertEquals(0, results.get(2).getHighways().size());
+    }
+
+    @Test
+    void testSkipsAddressesCloserToTheNewName() {
+        final DataSet dataSet = new DataSet();
+        road(dataSet, "North 8th Street", new LatLon(39.08, -108.560), new LatLon(39.09, -108.560));
+        road(dataSet, "Road 2", new LatLon(39.08, -108.570), new LatLon(39.09, -108.570));
+        final Node nearNewName = address(dataSet, "North 8th Street", new LatLon(39.085, -108.5699));
+        final List<StreetRenameEngine.RenameResult> results = new StreetRenameEngine(dataSet)
+                .rename(Map.of("North 8th Street", "Road 2"));
+        assertEquals("North 8th Street", nearNewName.get(ModifyWays.ADDR_STREET));
+        assertEquals(1, results.get(0).getSkippedAddresses());
+    }
+
+    @Test
+    void testRenamesFile(@TempDir Path directory) throws IOException {
+        final Path file = directory.resolve("renames.tsv");
+        Files.write(file, Arrays.asList("# old\tnew", "", "North 8th Street\tRoad 2", " Road 3 \t Road 4"),
+                StandardCharsets.UTF_8);
+        final Map<String, String> renames = StreetRenameCli.readRenames(file.toFile());
+        assertEquals(Arrays.asList("North 8th Street", "Road 3"), Arrays.asList(renames.keySet().toArray()));
+        assertEquals("Road 4", renames.get("Road 3"));
+
+        Files.write(file, Arrays.asList("North 8th Street,Road 2"), StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> StreetRenameCli.readRenames(file.toFile()));
+    }
+
+    @Test
+    void testReport() {
+        final DataSet dataSet = new DataSet();
+        road(dataSet, "North 8th Street", new LatLon(39.08, -108.560), new LatLon(39.09, -108.560));
+        address(dataSet, "North 8th Street", new LatLon(39.085, -108.5601));
+        final List<StreetRenameEngine.RenameResult> results = new StreetRenameEngine(dataSet)
+                .rename(Map.of("North 8th Street", "Road 2"));
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        StreetRenameCli.writeReport(results, new PrintStream(bytes, true));
+        assertEquals("# old name\tnew name\thighways\taddresses\tskipped addresses\n"
+                + "North 8th Street\tRoad 2\t1\t1\t0\n", bytes.toString().replace("\r\n", "\n"));
+    }
+}